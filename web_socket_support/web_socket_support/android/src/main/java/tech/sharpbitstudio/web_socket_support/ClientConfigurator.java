@@ -1,18 +1,119 @@
 package tech.sharpbitstudio.web_socket_support;
 
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_PING_INTERVAL_SEC;
+
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import javax.net.SocketFactory;
+import okhttp3.Dns;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import org.jetbrains.annotations.NotNull;
+import tech.sharpbitstudio.web_socket_support.domain.ClientOptions;
+import tech.sharpbitstudio.web_socket_support.stats.ConnectionTimings;
+import tech.sharpbitstudio.web_socket_support.stats.HandshakeTracer;
 
+/**
+ * Derives connection specific OkHttpClient from the shared one. Derived clients are cached by
+ * {@link ClientOptions}, so repeated connects (and reconnect attempts) with the same options reuse
+ * the same client instead of building a new one every time. Cache holds at most
+ * {@link #MAX_CACHED_CLIENTS} clients and evicts the least recently used one.
+ * <p>
+ * OkHttp always offers permessage-deflate. Compression can be turned off per connection, in which
+ * case the offer is removed from the handshake request, and frames smaller than
+ * compressionMinSize are never compressed.
+ * <p>
+ * Derived clients trace handshakes tagged with {@link ConnectionTimings} (see
+ * {@link HandshakeTracer}). Tracing DNS and socket factory are created once per base client, so
+ * clients derived with different options still share pooled connections.
+ */
 public class ClientConfigurator {
 
-  public static final int PING_INTERVAL_SEC = 30;
+  public static final int PING_INTERVAL_SEC = DEFAULT_PING_INTERVAL_SEC;
+  public static final int MAX_CACHED_CLIENTS = 8;
+  public static final String HEADER_WEB_SOCKET_EXTENSIONS = "Sec-WebSocket-Extensions";
+
+  // removes permessage-deflate offer added by OkHttp to handshake request
+  private static final Interceptor DISABLE_COMPRESSION_INTERCEPTOR = chain -> chain.proceed(
+      chain.request().newBuilder().removeHeader(HEADER_WEB_SOCKET_EXTENSIONS).build());
+
+  // guarded by this
+  private OkHttpClient baseClient;
+  private Dns tracingDns;
+  private SocketFactory tracingSocketFactory;
+  private final Map<ClientOptions, OkHttpClient> clientCache =
+      new LinkedHashMap<ClientOptions, OkHttpClient>(MAX_CACHED_CLIENTS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Entry<ClientOptions, OkHttpClient> eldest) {
+          return size() > MAX_CACHED_CLIENTS;
+        }
+      };
+  private long cacheHitCount;
+  private long cacheMissCount;
 
   public OkHttpClient configure(@NotNull OkHttpClient okHttpClient, Map<String, Object> options) {
-    // TODO: ws client needs to be customized based on options parameter
-    return okHttpClient.newBuilder()
-        .pingInterval(Duration.of(PING_INTERVAL_SEC, ChronoUnit.SECONDS)).build();
+    return configure(okHttpClient, ClientOptions.fromOptions(options, new ArrayList<>()));
+  }
+
+  public synchronized OkHttpClient configure(@NotNull OkHttpClient okHttpClient,
+      @NotNull ClientOptions options) {
+
+    // derived clients are valid only for the client they were built from
+    if (baseClient != okHttpClient) {
+      clientCache.clear();
+      baseClient = okHttpClient;
+      tracingDns = HandshakeTracer.dns(okHttpClient.dns());
+      // custom socket factory of base client is kept, TCP connect is then not traced
+      tracingSocketFactory = okHttpClient.socketFactory() == SocketFactory.getDefault()
+          ? HandshakeTracer.socketFactory() : okHttpClient.socketFactory();
+    }
+
+    OkHttpClient client = clientCache.get(options);
+    if (client != null) {
+      cacheHitCount++;
+      return client;
+    }
+    cacheMissCount++;
+    final OkHttpClient.Builder builder = okHttpClient.newBuilder()
+        .pingInterval(Duration.of(options.getPingIntervalSec(), ChronoUnit.SECONDS))
+        .minWebSocketMessageToCompress(options.getCompressionMinSize())
+        .addInterceptor(HandshakeTracer.INTERCEPTOR)
+        .dns(tracingDns)
+        .socketFactory(tracingSocketFactory);
+    if (!options.isCompression()) {
+      // network interceptors are skipped for web socket calls
+      builder.addInterceptor(DISABLE_COMPRESSION_INTERCEPTOR);
+    }
+    if (options.getConnectTimeoutMs() != ClientOptions.INHERIT) {
+      builder.connectTimeout(options.getConnectTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+    if (options.getReadTimeoutMs() != ClientOptions.INHERIT) {
+      builder.readTimeout(options.getReadTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+    if (options.getWriteTimeoutMs() != ClientOptions.INHERIT) {
+      builder.writeTimeout(options.getWriteTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+    if (options.getCallTimeoutMs() != ClientOptions.INHERIT) {
+      builder.callTimeout(options.getCallTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+    if (options.getRetryOnConnectionFailure() != null) {
+      builder.retryOnConnectionFailure(options.getRetryOnConnectionFailure());
+    }
+    client = builder.build();
+    clientCache.put(options, client);
+    return client;
+  }
+
+  public synchronized long getCacheHitCount() {
+    return cacheHitCount;
+  }
+
+  public synchronized long getCacheMissCount() {
+    return cacheMissCount;
   }
 }
@@ -0,0 +1,74 @@
+package tech.sharpbitstudio.web_socket_support;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.IOException;
+import java.util.Collections;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import tech.sharpbitstudio.web_socket_support.domain.ClientOptions;
+import tech.sharpbitstudio.web_socket_support.stats.ConnectionTimings;
+
+/**
+ * Takes DNS, TCP and TLS handshakes off the critical path of connect. Prewarm sends a HEAD request
+ * to the web socket endpoint with the client connect would use, restricted to HTTP/1.1 like OkHttp's
+ * web socket client, so the resulting connection has the same address and is left idle in shared
+ * connection pool. Web socket connect to the same endpoint with the same options then takes that
+ * connection instead of opening a new one. If server closes the connection, TLS session stays in
+ * session cache and the next handshake is resumed.
+ * <p>
+ * Result is completed with phase timings of the prewarm call (see {@link ConnectionTimings}).
+ * Pooled connection is evicted after pool keep-alive (5 minutes by default).
+ */
+public class ConnectionPrewarmer {
+
+  private static final String TAG = "ConnectionPrewarmer";
+
+  private final ClientConfigurator clientConfigurator;
+
+  public ConnectionPrewarmer(@NonNull ClientConfigurator clientConfigurator) {
+    this.clientConfigurator = clientConfigurator;
+  }
+
+  /**
+   * @param okHttpClient shared client
+   * @param serverUrl    web socket URL (ws, wss, http or https)
+   * @param options      connect options which will be used by connect
+   * @param result       completed with timings on OkHttp thread, or with error "07"
+   */
+  public void prewarm(@NonNull OkHttpClient okHttpClient, @NonNull String serverUrl,
+      @NonNull ClientOptions options, @NonNull Result result) {
+    final ConnectionTimings timings = new ConnectionTimings();
+    final OkHttpClient client = clientConfigurator.configure(okHttpClient, options).newBuilder()
+        .protocols(Collections.singletonList(Protocol.HTTP_1_1))
+        .eventListener(timings)
+        .build();
+    final Request request;
+    try {
+      request = new Request.Builder().url(serverUrl).head().build();
+    } catch (IllegalArgumentException e) {
+      result.error("07", "Invalid server URL: " + serverUrl, null);
+      return;
+    }
+    client.newCall(request).enqueue(new Callback() {
+      @Override
+      public void onResponse(@NonNull Call call, @NonNull Response response) {
+        // any response is fine, connection is released to pool once response is closed
+        response.close();
+        Log.i(TAG, "Connection prewarmed: " + serverUrl + ". Timings:" + timings.toMap());
+        result.success(timings.toMap());
+      }
+
+      @Override
+      public void onFailure(@NonNull Call call, @NonNull IOException e) {
+        Log.w(TAG, "Unable to prewarm connection: " + serverUrl + ". Error:" + e.getMessage());
+        result.error("07", "Unable to prewarm connection!", e.getMessage());
+      }
+    });
+  }
+}
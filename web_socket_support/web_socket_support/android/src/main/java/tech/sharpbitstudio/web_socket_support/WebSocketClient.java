@@ -1,40 +1,95 @@
 package tech.sharpbitstudio.web_socket_support;
 
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BUFFERED_FRAMES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BYTES_QUEUED;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BYTE_MESSAGE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BYTE_MESSAGES;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_CODE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_CONNECTION_ID;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_CREDITS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_DROPPED_FRAMES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_FILTER_ID;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_FILTER_TYPE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_ID_FIELD;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_KEY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_LENGTH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_MESSAGE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_OFFSET;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_OPTIONS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_PREFIX;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_QUEUE_SIZE;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_REASON;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_TEXT_MESSAGE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_TEXT_MESSAGES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_TIMEOUT_MS;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_URL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_VALUE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_CONNECTION_ID;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_REQUEST_ID_FIELD;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_REQUEST_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.FILTER_TYPE_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.FILTER_TYPE_JSON;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.FILTER_TYPE_PREFIX;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_ADD_FILTER;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_CLEAR_FILTERS;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_CONNECT;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_DISCONNECT;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_GET_LATENCY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_GET_STATS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_PING;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_PREWARM;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_QUEUE_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_REMOVE_FILTER;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_REQUEST;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_REQUEST_MESSAGES;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_BYTE_MSG;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_BYTE_MSGS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_FILE;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_TEXT_MSG;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_TEXT_MSGS;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.OUT_METHOD_NAME_ON_BYTE_MSG;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.OUT_METHOD_NAME_ON_TEXT_MSG;
 
 import android.os.Handler;
 import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.collection.ArrayMap;
 import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.EventChannel.EventSink;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.AccessLevel;
+import lombok.Getter;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
 import okio.ByteString;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import tech.sharpbitstudio.web_socket_support.delivery.DirectBinaryChannel;
+import tech.sharpbitstudio.web_socket_support.delivery.FrameFilter;
+import tech.sharpbitstudio.web_socket_support.domain.ClientOptions;
 import tech.sharpbitstudio.web_socket_support.domain.SystemEventContext;
 import tech.sharpbitstudio.web_socket_support.domain.SystemEventType;
+import tech.sharpbitstudio.web_socket_support.handlers.MainThreadResult;
 import tech.sharpbitstudio.web_socket_support.handlers.WebSocketStreamHandler;
+import tech.sharpbitstudio.web_socket_support.reconnect.NetworkMonitor;
+import tech.sharpbitstudio.web_socket_support.stats.ConnectionStats;
+import tech.sharpbitstudio.web_socket_support.stats.LatencyHistogram;
 
 public class WebSocketClient extends WebSocketListener implements MethodCallHandler {
 
@@ -42,27 +97,57 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
 
   // The singleton HTTP client.
   public final OkHttpClient okHttpClient;
+  @Getter(AccessLevel.PACKAGE)
   private final Handler mainThreadHandler;
+  // sessions run on this handler, it is main thread handler unless background dispatch is enabled
+  private final Handler dispatchHandler;
+  @Getter(AccessLevel.PACKAGE)
   private final ClientConfigurator clientConfigurator;
+  @Getter(AccessLevel.PACKAGE)
+  private final NetworkMonitor networkMonitor;
+  private final ConnectionPrewarmer connectionPrewarmer;
   private final MethodChannel methodChannel;
+  private final DirectBinaryChannel directBinaryChannel;
+  // reads files sent by sessions, thread is started on first send
+  @Getter(AccessLevel.PACKAGE)
+  private final ExecutorService fileReader =
+      Executors.newSingleThreadExecutor(task -> new Thread(task, "ws-file-reader"));
+  // writes frame captures of all sessions, so capture reopened by a new connect is appended only
+  // after the previous one is flushed
+  @Getter(AccessLevel.PACKAGE)
+  private final ExecutorService captureWriter =
+      Executors.newSingleThreadExecutor(task -> new Thread(task, "ws-capture"));
+  // reads and writes outbox journals of all sessions, so journal reopened by a new connect is used
+  // only after the previous one is closed
+  @Getter(AccessLevel.PACKAGE)
+  private final ExecutorService outboxWriter =
+      Executors.newSingleThreadExecutor(task -> new Thread(task, "ws-outbox"));
+
+  // active sessions by connection id
+  private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
 
   // flutter event sinks
   private EventSink byteMessagesEventSink;
   private EventSink textMessagesEventSink;
 
-  // locals
-  private WebSocket webSocket;
-  private boolean autoReconnect = false;
-  private int delayedConnectAttempt;
+  // fallback to method call is logged once per missing sink, not per message
+  private boolean byteFallbackLogged;
+  private boolean textFallbackLogged;
 
   // constructor
   public WebSocketClient(@NonNull OkHttpClient okHttpClient, @NonNull Handler mainThreadHandler,
-      @NonNull ClientConfigurator clientConfigurator, @NonNull MethodChannel methodChannel,
-      @NonNull EventChannel textMessageEventChannel,
-      @NonNull EventChannel binaryMessageEventChannel) {
+      @NonNull Handler dispatchHandler,
+      @NonNull ClientConfigurator clientConfigurator, @NonNull NetworkMonitor networkMonitor,
+      @NonNull MethodChannel methodChannel, @NonNull EventChannel textMessageEventChannel,
+      @NonNull EventChannel binaryMessageEventChannel,
+      @NonNull DirectBinaryChannel directBinaryChannel) {
     this.okHttpClient = okHttpClient;
     this.mainThreadHandler = mainThreadHandler;
+    this.dispatchHandler = dispatchHandler;
     this.clientConfigurator = clientConfigurator;
+    this.networkMonitor = networkMonitor;
+    this.directBinaryChannel = directBinaryChannel;
+    this.connectionPrewarmer = new ConnectionPrewarmer(clientConfigurator);
 
     // subscribe as method channel handler
     this.methodChannel = methodChannel;
@@ -71,6 +156,7 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
     // setup textStreamHandler and subscribe to textMessageEventChannel
     textMessageEventChannel.setStreamHandler(new WebSocketStreamHandler((args, sink) -> {
       textMessagesEventSink = sink;
+      textFallbackLogged = false;
       Log.i(TAG, "TextMessageEventSink set -> arguments:" + args);
     }, (args) -> {
       textMessagesEventSink = null;
@@ -80,6 +166,7 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
     // setup binaryStreamHandler and subscribe to binaryMessageEventChannel
     binaryMessageEventChannel.setStreamHandler(new WebSocketStreamHandler((args, sink) -> {
       byteMessagesEventSink = sink;
+      byteFallbackLogged = false;
       Log.i(TAG, "setBinaryMessageEventSink -> arguments:" + args);
     }, (args) -> {
       byteMessagesEventSink = null;
@@ -89,92 +176,42 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
     Log.i(TAG, "WebSocketClient created.");
   }
 
+  /// WebSocketListener callbacks are forwarded to default connection session
+
   @Override
   public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
-    Log.i(TAG, "WS connected. WebSocket:" + webSocket.toString());
-    this.webSocket = webSocket;
-    this.delayedConnectAttempt = 0;
-
-    // notify flutter about onOpen event
-    mainThreadHandler.post(() -> methodChannel
-        .invokeMethod(SystemEventType.WS_OPENED.getMethodName(),
-            SystemEventContext.builder().build().toMap()));
+    defaultSession().onOpen(webSocket, response);
   }
 
   @Override
   public void onMessage(@NotNull WebSocket webSocket, @NotNull String text) {
-    Log.d(TAG, "Text message received. content:" + text);
-    mainThreadHandler.post(() -> {
-      if (textMessagesEventSink != null) {
-        try {
-          textMessagesEventSink.success(text);
-        } catch (Exception e) {
-          // sending system error should be critical
-          Log.e(TAG, "Exception while trying to send data to text channel.");
-          throw e;
-        }
-      } else {
-        // fall back to method call
-        Log.i(TAG, "TextMessagesEventSink was null! Falling back to method call.");
-        methodChannel.invokeMethod(OUT_METHOD_NAME_ON_TEXT_MSG, text);
-      }
-    });
+    defaultSession().onMessage(webSocket, text);
   }
 
   @Override
   public void onMessage(@NotNull WebSocket webSocket, @NotNull ByteString byteString) {
-    Log.d(TAG, "Byte message received. size:" + byteString.size());
-    mainThreadHandler.post(() -> {
-      if (byteMessagesEventSink != null) {
-        try {
-          byteMessagesEventSink.success(byteString.toByteArray());
-        } catch (Exception e) {
-          // sending system error should be critical
-          Log.e(TAG, "Exception while trying to send data to byte channel.");
-          throw e;
-        }
-      } else {
-        // fall back to method call
-        Log.i(TAG, "ByteMessagesEventSink was null! Falling back to method call.");
-        methodChannel.invokeMethod(OUT_METHOD_NAME_ON_BYTE_MSG, byteString.toByteArray());
-      }
-    });
+    defaultSession().onMessage(webSocket, byteString);
   }
 
   @Override
   public void onClosing(@NotNull WebSocket webSocket, int code, @NotNull String reason) {
-    Log.i(TAG, "WS is about to close. Code:" + code + ", Reason:" + reason);
-    mainThreadHandler.post(() -> methodChannel
-        .invokeMethod(SystemEventType.WS_CLOSING.getMethodName(),
-            SystemEventContext.builder().closeCode(code).closeReason(reason).build().toMap()));
+    defaultSession().onClosing(webSocket, code, reason);
   }
 
   @Override
   public void onClosed(@NotNull WebSocket webSocket, int code, @NotNull String reason) {
-    Log.i(TAG, "WS closed. Code:" + code + ", Reason:" + reason);
-    mainThreadHandler.post(() -> {
-      methodChannel.invokeMethod(SystemEventType.WS_CLOSED.getMethodName(),
-          SystemEventContext.builder().closeCode(code).closeReason(reason).build().toMap());
-      cleanUpOnClose();
-    });
+    defaultSession().onClosed(webSocket, code, reason);
   }
 
   @Override
   public void onFailure(@NotNull WebSocket webSocket, @NotNull Throwable t,
       @Nullable Response response) {
-    Log.e(TAG, "Error occurred on ws channel. Error:" + t.getMessage() + ". Response:" + response);
-    mainThreadHandler.post(() -> {
-      final Map<String, Object> context = SystemEventContext.builder()
-          .throwableType(t.getClass().getSimpleName())
-          .errorMessage(t.getMessage())
-          .causeMessage(t.getCause() != null ? t.getCause().toString() : null).build().toMap();
-      methodChannel.invokeMethod(SystemEventType.WS_FAILURE.getMethodName(), context);
-      cleanUpOnClose();
-    });
+    defaultSession().onFailure(webSocket, t, response);
   }
 
   /**
-   * Handles calls from Flutter (via Platform channel)
+   * Handles calls from Flutter (via Platform channel). With background dispatch, call is handled
+   * on dispatch thread and result is sent back on main thread.
    * <p/>
    * {@inheritDoc}
    *
@@ -183,6 +220,20 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
    */
   @Override
   public void onMethodCall(@NonNull MethodCall call, @NonNull Result result) {
+    if (isBackgroundDispatch()) {
+      // call is already decoded on main thread, only its handling moves to dispatch thread
+      dispatchHandler.post(
+          () -> handleMethodCall(call, new MainThreadResult(result, mainThreadHandler)));
+    } else {
+      handleMethodCall(call, result);
+    }
+  }
+
+  private void handleMethodCall(@NonNull MethodCall call, @NonNull Result result) {
+
+    // all calls without connection id are related to default connection
+    final String connectionId = call.argument(ARGUMENT_CONNECTION_ID) != null
+        ? call.argument(ARGUMENT_CONNECTION_ID) : DEFAULT_CONNECTION_ID;
 
     switch (call.method) {
 
@@ -194,8 +245,22 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
         Map<String, Object> options = call.argument(ARGUMENT_OPTIONS);
 
         // connect to WS server
-        connect(Objects.requireNonNull(url), options);
-        result.success(null);
+        sessions.computeIfAbsent(connectionId, this::createSession)
+            .connect(Objects.requireNonNull(url), options);
+        result.success(connectionId);
+        break;
+      }
+
+      // resolve host and open pooled connection ahead of connect, result is timings
+      case IN_METHOD_NAME_PREWARM: {
+        final String url = call.argument(ARGUMENT_URL);
+        final Map<String, Object> options = call.argument(ARGUMENT_OPTIONS);
+        // prewarm completes result on OkHttp thread
+        final Result prewarmResult = result instanceof MainThreadResult
+            ? result : new MainThreadResult(result, mainThreadHandler);
+        connectionPrewarmer.prewarm(okHttpClient, Objects.requireNonNull(url),
+            ClientOptions.fromOptions(options != null ? options : Collections.emptyMap(),
+                new ArrayList<>()), prewarmResult);
         break;
       }
 
@@ -206,7 +271,12 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
         final Integer code = call.argument(ARGUMENT_CODE);
         final String reason = call.argument(ARGUMENT_REASON);
 
-        disconnect(code, reason);
+        final WebSocketSession session = sessions.get(connectionId);
+        if (session != null) {
+          session.disconnect(code, reason);
+        } else {
+          Log.w(TAG, "Unknown connection on disconnect: " + connectionId);
+        }
         result.success(null);
         break;
       }
@@ -214,10 +284,10 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
       // send text message
       case IN_METHOD_NAME_SEND_TEXT_MSG: {
         String message = call.argument(ARGUMENT_TEXT_MESSAGE);
-        if (sendTextMessage(message)) {
+        final WebSocketSession session = sessions.get(connectionId);
+        if (session != null && session.sendTextMessage(message)) {
           result.success(null);
         } else {
-          // TODO: error code should be reconsidered
           Log.e(TAG, "Unable to send text message to Ws server!");
           result.error("01", "Unable to send text message!", null);
         }
@@ -227,16 +297,165 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
       // send byte message
       case IN_METHOD_NAME_SEND_BYTE_MSG: {
         byte[] message = call.argument(ARGUMENT_BYTE_MESSAGE);
-        if (sendByteMessage(ByteString.of(message != null ? message : new byte[0]))) {
+        final WebSocketSession session = sessions.get(connectionId);
+        if (session != null && session
+            .sendByteMessage(ByteString.of(message != null ? message : new byte[0]))) {
           result.success(null);
         } else {
-          // TODO: error code should be reconsidered
           Log.e(TAG, "Unable to send binary message to Ws server!");
           result.error("02", "Unable to send binary message!", null);
         }
         break;
       }
 
+      // send file (or its part) as binary message, result is id of the send
+      case IN_METHOD_NAME_SEND_FILE: {
+        final String path = call.argument(ARGUMENT_PATH);
+        final Number offset = call.argument(ARGUMENT_OFFSET);
+        final Number length = call.argument(ARGUMENT_LENGTH);
+        final WebSocketSession session = sessions.get(connectionId);
+        if (session != null && path != null) {
+          session.sendFile(new File(path), offset != null ? offset.longValue() : 0,
+              length != null ? length.longValue() : -1, result);
+        } else {
+          Log.e(TAG, "Unable to send file to Ws server!");
+          result.error("02", "Unable to send file!", null);
+        }
+        break;
+      }
+
+      // send request, result is completed natively with reply text
+      case IN_METHOD_NAME_REQUEST: {
+        final String payload = call.argument(ARGUMENT_TEXT_MESSAGE);
+        final String idField = call.argument(ARGUMENT_ID_FIELD);
+        final Number timeoutMs = call.argument(ARGUMENT_TIMEOUT_MS);
+        final WebSocketSession session = sessions.get(connectionId);
+        // reply may complete result on reader thread
+        final Result replyResult = result instanceof MainThreadResult
+            ? result : new MainThreadResult(result, mainThreadHandler);
+        if (session == null || !session.request(payload,
+            idField != null ? idField : DEFAULT_REQUEST_ID_FIELD,
+            timeoutMs != null ? timeoutMs.longValue() : DEFAULT_REQUEST_TIMEOUT_MS,
+            replyResult)) {
+          Log.e(TAG, "Unable to send request to Ws server!");
+          result.error("01", "Unable to send request!", null);
+        }
+        break;
+      }
+
+      // send list of text messages, result is number of accepted messages
+      case IN_METHOD_NAME_SEND_TEXT_MSGS: {
+        final List<String> messages = call.argument(ARGUMENT_TEXT_MESSAGES);
+        final WebSocketSession session = sessions.get(connectionId);
+        if (session != null) {
+          result.success(session.sendTextMessages(messages));
+        } else {
+          Log.e(TAG, "Unable to send text messages to Ws server!");
+          result.error("01", "Unable to send text messages!", null);
+        }
+        break;
+      }
+
+      // send list of byte messages, result is number of accepted messages
+      case IN_METHOD_NAME_SEND_BYTE_MSGS: {
+        final List<byte[]> messages = call.argument(ARGUMENT_BYTE_MESSAGES);
+        final WebSocketSession session = sessions.get(connectionId);
+        if (session != null) {
+          result.success(session.sendByteMessages(messages));
+        } else {
+          Log.e(TAG, "Unable to send binary messages to Ws server!");
+          result.error("02", "Unable to send binary messages!", null);
+        }
+        break;
+      }
+
+      // outbound queue state
+      case IN_METHOD_NAME_QUEUE_SIZE: {
+        final WebSocketSession session = sessions.get(connectionId);
+        final Map<String, Object> queueState = new ArrayMap<>(2);
+        queueState.put(ARGUMENT_QUEUE_SIZE, session != null ? session.queueSize() : 0);
+        queueState.put(ARGUMENT_BYTES_QUEUED, session != null ? session.bytesQueued() : 0L);
+        result.success(queueState);
+        break;
+      }
+
+      // inbound flow control credits
+      case IN_METHOD_NAME_REQUEST_MESSAGES: {
+        final Number credits = call.argument(ARGUMENT_CREDITS);
+        final WebSocketSession session = sessions.get(connectionId);
+        if (session != null && credits != null) {
+          session.requestMessages(credits.longValue());
+        }
+        final Map<String, Object> bufferState = new ArrayMap<>(2);
+        bufferState.put(ARGUMENT_BUFFERED_FRAMES,
+            session != null ? session.inboundBufferedFrames() : 0);
+        bufferState.put(ARGUMENT_DROPPED_FRAMES,
+            session != null ? session.inboundDroppedFrames() : 0L);
+        result.success(bufferState);
+        break;
+      }
+
+      // subscription filters
+      case IN_METHOD_NAME_ADD_FILTER: {
+        final String filterId = call.argument(ARGUMENT_FILTER_ID);
+        final Object rule = createFilterRule(call);
+        if (filterId != null && rule != null) {
+          sessions.computeIfAbsent(connectionId, this::createSession)
+              .getFrameFilter().put(filterId, rule);
+          result.success(null);
+        } else {
+          Log.e(TAG, "Invalid filter: " + call.arguments);
+          result.error("03", "Invalid filter!", null);
+        }
+        break;
+      }
+
+      case IN_METHOD_NAME_REMOVE_FILTER: {
+        final String filterId = call.argument(ARGUMENT_FILTER_ID);
+        final WebSocketSession session = sessions.get(connectionId);
+        result.success(session != null && filterId != null
+            && session.getFrameFilter().remove(filterId));
+        break;
+      }
+
+      case IN_METHOD_NAME_CLEAR_FILTERS: {
+        final WebSocketSession session = sessions.get(connectionId);
+        if (session != null) {
+          session.getFrameFilter().clear();
+        }
+        result.success(null);
+        break;
+      }
+
+      // connection stats snapshot
+      case IN_METHOD_NAME_GET_STATS: {
+        final WebSocketSession session = sessions.get(connectionId);
+        result.success(session != null ? session.statsToMap()
+            : statsToMap(new ConnectionStats(), 0, 0));
+        break;
+      }
+
+      // ping round-trip time histogram
+      case IN_METHOD_NAME_GET_LATENCY: {
+        final WebSocketSession session = sessions.get(connectionId);
+        result.success(
+            (session != null ? session.getLatency() : new LatencyHistogram()).toMap());
+        break;
+      }
+
+      // application level ping, result is round-trip time in milliseconds
+      case IN_METHOD_NAME_PING: {
+        final WebSocketSession session = sessions.get(connectionId);
+        // reply may complete result on reader thread
+        final Result pongResult = result instanceof MainThreadResult
+            ? result : new MainThreadResult(result, mainThreadHandler);
+        if (session == null || !session.ping(pongResult)) {
+          Log.e(TAG, "Unable to send ping to Ws server!");
+          result.error("01", "Unable to send ping!", null);
+        }
+        break;
+      }
+
       // if unexpected (all non specified methods)
       default:
         Log.w(TAG, "Unexpected MethodCall: " + call.method);
@@ -245,126 +464,233 @@ public class WebSocketClient extends WebSocketListener implements MethodCallHand
   }
 
   public void terminate() {
-    // TODO
+    final List<WebSocketSession> terminated = new ArrayList<>(sessions.values());
+    sessions.clear();
+    runOnDispatchThread(() -> {
+      for (WebSocketSession session : terminated) {
+        session.cancel();
+      }
+      // captures and outboxes closed above are still flushed
+      captureWriter.shutdown();
+      outboxWriter.shutdown();
+    });
     this.methodChannel.setMethodCallHandler(null);
+    fileReader.shutdownNow();
     Log.i(TAG, "WebSocketClient terminated.");
   }
 
-  /// PRIVATE
-
   /**
-   * Used to customize OkHttpClient and connect to WS Endpoint.
-   * <p>
-   * Creates a new web socket and immediately returns it. Creating a web socket initiates an
-   * asynchronous process to connect the socket. Once that succeeds or fails, `listener` will be
-   * notified. The caller must either close or cancel the returned web socket when it is no longer
-   * in use.
+   * Sends system event to Flutter via method channel. Must be called on dispatch thread.
    *
-   * @param serverUrl server URL.
-   * @param options   key-value map data used to configure connection.
+   * @param eventType event type
+   * @param context   event details
    */
-  private void connect(String serverUrl, Map<String, Object> options) {
-
-    if (webSocket != null) {
-      Log.w(TAG, "WS Connection still active on new connect attempt. Disconnecting...");
-      disconnect(1001, "Connection restart."); // call disconnect and wait for onClose
-      // schedule next try and return for now...
-      tryDelayedConnect(serverUrl, options);
-      return;
-    }
-
-    // set locals
-    this.autoReconnect = (boolean) options.computeIfAbsent("autoReconnect", (s) -> false);
+  void sendSystemEvent(SystemEventType eventType, SystemEventContext context) {
+    final Map<String, Object> arguments = context.toMap();
+    runOnMainThread(() -> methodChannel.invokeMethod(eventType.getMethodName(), arguments));
+  }
 
-    // prepare request
-    final Request request = new Request.Builder()
-        .url(serverUrl)
-        .build();
+  /**
+   * Converts connection counters to stats map, adding inbound buffer state and OkHttpClient cache
+   * counters which are shared by all connections.
+   *
+   * @param stats          connection counters
+   * @param bufferedFrames inbound frames waiting for credits
+   * @param droppedFrames  inbound frames dropped because buffer was full
+   * @return stats map sent to Flutter
+   */
+  Map<String, Object> statsToMap(ConnectionStats stats, int bufferedFrames, long droppedFrames) {
+    final Map<String, Object> result = stats.toMap();
+    result.put(ARGUMENT_BUFFERED_FRAMES, bufferedFrames);
+    result.put(ARGUMENT_DROPPED_FRAMES, droppedFrames);
+    result.put("clientCacheHits", clientConfigurator.getCacheHitCount());
+    result.put("clientCacheMisses", clientConfigurator.getCacheMissCount());
+    return result;
+  }
 
-    // customize default ws client
-    final OkHttpClient client = clientConfigurator.configure(okHttpClient, options);
+  /**
+   * Sends text payload (single message or batch) to text EventSink. Falls back to method call if
+   * EventSink is not set. Must be called on dispatch thread.
+   *
+   * @param connectionId id of connection which received payload
+   * @param payload      String or List of Strings
+   */
+  void deliverTextMessage(String connectionId, Object payload) {
+    final Object event = toMessageEvent(connectionId, payload);
+    runOnMainThread(() -> sendTextEvent(connectionId, event));
+  }
 
-    // connect to server and register as listener
-    client.newWebSocket(request, this);
+  /**
+   * Sends binary payload (single message or batch) to byte EventSink. Falls back to method call if
+   * EventSink is not set. Must be called on dispatch thread.
+   *
+   * @param connectionId id of connection which received payload
+   * @param payload      byte[] or List of byte[]
+   */
+  void deliverByteMessage(String connectionId, Object payload) {
+    final Object event = toMessageEvent(connectionId, payload);
+    runOnMainThread(() -> sendByteEvent(connectionId, event));
+  }
 
-    // done
-    Log.i(TAG, "Connection request sent to: " + serverUrl);
+  /**
+   * Sends text payload to text EventSink right away. Must be called on main thread.
+   *
+   * @param connectionId id of connection which received payload
+   * @param payload      String or List of Strings
+   */
+  void deliverTextMessageOnMainThread(String connectionId, Object payload) {
+    sendTextEvent(connectionId, toMessageEvent(connectionId, payload));
   }
 
-  private void tryDelayedConnect(String serverUrl, Map<String, Object> options) {
-    // try connect again in 1 sec.
-    delayedConnectAttempt++;
-    Log.i(TAG, "Scheduling delayed connect #" + delayedConnectAttempt);
-    if (delayedConnectAttempt > 3) {
-      if (webSocket != null) {
-        // kill current web-socket session
-        Log.w(TAG, "Killing violently web socket connection...");
-        webSocket.cancel();
-      }
-    }
-    mainThreadHandler.postDelayed(() -> connect(serverUrl, options), 1000);
+  /**
+   * Sends binary payload to byte EventSink right away. Must be called on main thread.
+   *
+   * @param connectionId id of connection which received payload
+   * @param payload      byte[] or List of byte[]
+   */
+  void deliverByteMessageOnMainThread(String connectionId, Object payload) {
+    sendByteEvent(connectionId, toMessageEvent(connectionId, payload));
   }
 
   /**
-   * Attempts to initiate a graceful shutdown of this web socket. Any already-enqueued messages will
-   * be transmitted before the close message is sent but subsequent calls to send will return false
-   * and their messages will not be enqueued.
-   * <p>
-   * Close code sent to server will be 1000.
+   * Sends binary frame to Flutter over direct binary channel, bypassing message codec. Must be
+   * called on dispatch thread.
    *
-   * @param code   disconnection code
-   * @param reason Reason to disconnect
+   * @param connectionId id of connection which received frame
+   * @param frame        received frame
    */
-  private void disconnect(Integer code, String reason) {
-    autoReconnect = false;
-    if (webSocket != null) {
-      webSocket.close(code != null ? code : 1000, reason != null ? reason : "Client done.");
-    } else {
-      Log.w(TAG, "WebSocket was null on disconnect.");
-    }
+  void deliverDirectByteMessage(String connectionId, ByteString frame) {
+    final String directConnectionId =
+        DEFAULT_CONNECTION_ID.equals(connectionId) ? null : connectionId;
+    runOnMainThread(() -> directBinaryChannel.send(directConnectionId, frame));
   }
 
   /**
-   * Sends String message to server via established WebSocket connection.
-   * <p>
-   * This method returns true if the message was enqueued. Messages that would overflow the outgoing
-   * message buffer will be rejected and trigger a graceful shutdown of this web socket. This method
-   * returns false in that case, and in any other case where this web socket is closing, closed, or
-   * canceled.
+   * Removes closed session from registry. Default session is kept since it is used by calls
+   * without connection id.
    *
-   * @param message String message to send to server
-   * @return true if successful
+   * @param session closed session
    */
-  private boolean sendTextMessage(String message) {
-    if (webSocket != null) {
-      return webSocket.send(message);
+  void onSessionClosed(WebSocketSession session) {
+    if (!DEFAULT_CONNECTION_ID.equals(session.getConnectionId())
+        && sessions.remove(session.getConnectionId(), session)) {
+      session.closeOutbox();
+    }
+  }
+
+  /// PRIVATE
+
+  private void sendTextEvent(String connectionId, Object event) {
+    if (textMessagesEventSink != null) {
+      try {
+        textMessagesEventSink.success(event);
+      } catch (Exception e) {
+        // sending system error should be critical
+        Log.e(TAG, "Exception while trying to send data to text channel.");
+        throw e;
+      }
     } else {
-      Log.w(TAG, "WebSocket is not connected yet. Unable to send text message...");
-      return false;
+      // fall back to method call
+      if (!textFallbackLogged) {
+        textFallbackLogged = true;
+        Log.i(TAG, "TextMessagesEventSink was null! Falling back to method call.");
+      }
+      onFallbackDelivery(connectionId);
+      methodChannel.invokeMethod(OUT_METHOD_NAME_ON_TEXT_MSG, event);
+    }
+  }
+
+  private void sendByteEvent(String connectionId, Object event) {
+    if (byteMessagesEventSink != null) {
+      try {
+        byteMessagesEventSink.success(event);
+      } catch (Exception e) {
+        // sending system error should be critical
+        Log.e(TAG, "Exception while trying to send data to byte channel.");
+        throw e;
+      }
+    } else {
+      // fall back to method call
+      if (!byteFallbackLogged) {
+        byteFallbackLogged = true;
+        Log.i(TAG, "ByteMessagesEventSink was null! Falling back to method call.");
+      }
+      onFallbackDelivery(connectionId);
+      methodChannel.invokeMethod(OUT_METHOD_NAME_ON_BYTE_MSG, event);
     }
   }
 
   /**
-   * Send ByteString to server via established WebSocket connection.
-   * <p>
-   * This method returns true if the message was enqueued. Messages that would overflow the outgoing
-   * message buffer (16 MiB) will be rejected and trigger a graceful shutdown of this web socket.
-   * This method returns false in that case, and in any other case where this web socket is closing,
-   * closed, or canceled. This method returns immediately.
+   * Creates frame filter rule from addFilter call arguments.
    *
-   * @param message ByteString message to send to server
-   * @return true if successful
+   * @return rule or null if arguments are invalid
    */
-  private boolean sendByteMessage(ByteString message) {
-    if (webSocket != null) {
-      return webSocket.send(message);
+  private static Object createFilterRule(MethodCall call) {
+    final String type = call.argument(ARGUMENT_FILTER_TYPE);
+    if (FILTER_TYPE_PREFIX.equals(type)) {
+      final String prefix = call.argument(ARGUMENT_PREFIX);
+      return prefix != null ? FrameFilter.textPrefix(prefix) : null;
+    } else if (FILTER_TYPE_BYTES.equals(type)) {
+      final Integer offset = call.argument(ARGUMENT_OFFSET);
+      final byte[] bytes = call.argument(ARGUMENT_BYTES);
+      return bytes != null && bytes.length > 0 && (offset == null || offset >= 0)
+          ? FrameFilter.binaryMatch(offset != null ? offset : 0, ByteString.of(bytes)) : null;
+    } else if (FILTER_TYPE_JSON.equals(type)) {
+      final String keyPath = call.argument(ARGUMENT_KEY_PATH);
+      final String value = call.argument(ARGUMENT_VALUE);
+      return keyPath != null && !keyPath.isEmpty() && value != null
+          ? FrameFilter.jsonValue(keyPath, value) : null;
+    }
+    return null;
+  }
+
+  private void onFallbackDelivery(String connectionId) {
+    final WebSocketSession session = sessions.get(connectionId);
+    if (session != null) {
+      session.getStats().onFallbackDelivery();
+    }
+  }
+
+  private WebSocketSession defaultSession() {
+    return sessions.computeIfAbsent(DEFAULT_CONNECTION_ID, this::createSession);
+  }
+
+  private WebSocketSession createSession(String connectionId) {
+    Log.i(TAG, "Creating session: " + connectionId);
+    return new WebSocketSession(connectionId, this, dispatchHandler);
+  }
+
+  private boolean isBackgroundDispatch() {
+    return dispatchHandler != mainThreadHandler;
+  }
+
+  private void runOnMainThread(Runnable runnable) {
+    if (isBackgroundDispatch()) {
+      mainThreadHandler.post(runnable);
+    } else {
+      runnable.run();
+    }
+  }
+
+  private void runOnDispatchThread(Runnable runnable) {
+    if (isBackgroundDispatch()) {
+      dispatchHandler.post(runnable);
     } else {
-      Log.w(TAG, "WebSocket is not connected yet. Unable to send byte message...");
-      return false;
+      runnable.run();
     }
   }
 
-  private void cleanUpOnClose() {
-    webSocket = null;
+  /**
+   * Messages from default connection are sent as is, while messages from other connections are
+   * wrapped together with their connection id.
+   */
+  private static Object toMessageEvent(String connectionId, Object payload) {
+    if (DEFAULT_CONNECTION_ID.equals(connectionId)) {
+      return payload;
+    }
+    final Map<String, Object> event = new ArrayMap<>(2);
+    event.put(ARGUMENT_CONNECTION_ID, connectionId);
+    event.put(ARGUMENT_MESSAGE, payload);
+    return event;
   }
 }
@@ -0,0 +1,1423 @@
+package tech.sharpbitstudio.web_socket_support;
+
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_OPEN_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_BATCH_MAX_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_BATCH_WINDOW_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_INBOUND_BUFFER_MAX_FRAMES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_LARGE_BINARY_CHUNK_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_OUTBOX_MAX_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_REQUEST_ID_FIELD;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_REQUEST_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_SEND_HIGH_WATERMARK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_SEND_LOW_WATERMARK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_SEND_QUEUE_MAX_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_AUTO_RECONNECT;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_BATCH_MAX_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_BATCH_MESSAGES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_BATCH_WINDOW_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CAPTURE_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CONFLATE_KEY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CONFLATE_KEY_PREFIX_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_DIRECT_BINARY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_FLOW_CONTROL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_HEADERS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_INBOUND_BUFFER_MAX_FRAMES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_INBOUND_INITIAL_CREDITS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_INBOUND_OVERFLOW_POLICY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_CHUNK_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_DIRECTORY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_MODE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_THRESHOLD;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LOG_LEVEL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_OUTBOX_MAX_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_OUTBOX_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_OUTBOX_TTL_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_PING_FRAME;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_PING_ID_FIELD;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_REPLAY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_REPLAY_SPEED;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_FRAME;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_QUERY_PARAM;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_SEQ_BINARY_OFFSET;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_SEQ_KEY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_DROP_POLICY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_HIGH_WATERMARK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_LOW_WATERMARK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_QUEUE_MAX_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_STATS_INTERVAL_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.RESUME_SEQ_PLACEHOLDER;
+
+import android.os.Handler;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import lombok.Getter;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Utf8;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tech.sharpbitstudio.web_socket_support.capture.FrameCapture;
+import tech.sharpbitstudio.web_socket_support.capture.ReplayWebSocket;
+import tech.sharpbitstudio.web_socket_support.delivery.DurableOutbox;
+import tech.sharpbitstudio.web_socket_support.delivery.FrameFilter;
+import tech.sharpbitstudio.web_socket_support.delivery.InboundFlowControl;
+import tech.sharpbitstudio.web_socket_support.delivery.InboundFlowControl.OverflowPolicy;
+import tech.sharpbitstudio.web_socket_support.delivery.JsonKeyExtractor;
+import tech.sharpbitstudio.web_socket_support.delivery.LargeBinaryDelivery;
+import tech.sharpbitstudio.web_socket_support.delivery.MessageBatcher;
+import tech.sharpbitstudio.web_socket_support.delivery.MessageConflater;
+import tech.sharpbitstudio.web_socket_support.delivery.OutboundQueue;
+import tech.sharpbitstudio.web_socket_support.delivery.OutboundQueue.DropPolicy;
+import tech.sharpbitstudio.web_socket_support.delivery.SendProgressTracker;
+import tech.sharpbitstudio.web_socket_support.delivery.SequenceTracker;
+import tech.sharpbitstudio.web_socket_support.domain.ClientOptions;
+import tech.sharpbitstudio.web_socket_support.domain.OptionsValidator;
+import tech.sharpbitstudio.web_socket_support.domain.SystemEventContext;
+import tech.sharpbitstudio.web_socket_support.domain.SystemEventType;
+import tech.sharpbitstudio.web_socket_support.reconnect.ReconnectPolicy;
+import tech.sharpbitstudio.web_socket_support.reconnect.ReconnectScheduler;
+import tech.sharpbitstudio.web_socket_support.rpc.RequestCorrelator;
+import tech.sharpbitstudio.web_socket_support.stats.ConnectionStats;
+import tech.sharpbitstudio.web_socket_support.stats.ConnectionTimings;
+import tech.sharpbitstudio.web_socket_support.stats.LatencyHistogram;
+import tech.sharpbitstudio.web_socket_support.stats.PingTracker;
+
+/**
+ * Single WebSocket connection managed by {@link WebSocketClient}. Every session has its own
+ * connection id, WebSocket and reconnect state, while the OkHttpClient (dispatcher and connection
+ * pool) and Flutter channels are shared between sessions.
+ * <p>
+ * When autoReconnect option is set, session reconnects after failure or server side close as
+ * defined by {@link ReconnectPolicy}. Explicit disconnect stops reconnecting.
+ */
+public class WebSocketSession extends WebSocketListener {
+
+  private static final String TAG = "WebSocketSession";
+  // period of restart connect attempts while previous connection is closing
+  private static final long RESTART_CONNECT_DELAY_MS = 1000;
+  // restart attempts after which previous connection is cancelled
+  private static final int RESTART_CONNECT_MAX_GRACEFUL_ATTEMPTS = 3;
+
+  @Getter
+  private final String connectionId;
+  private final WebSocketClient owner;
+  private final Handler dispatchHandler;
+  private final ReconnectScheduler reconnectScheduler;
+  @Getter
+  private final ConnectionStats stats = new ConnectionStats();
+  private final Runnable statsTask = this::sendStats;
+  @Getter
+  private final LatencyHistogram latency = new LatencyHistogram();
+  // subscription rules, kept across reconnects
+  @Getter
+  private final FrameFilter frameFilter = new FrameFilter();
+  private final PingTracker pingTracker;
+  private final SendProgressTracker sendProgressTracker;
+  private final RequestCorrelator requestCorrelator;
+
+  // locals
+  private WebSocket webSocket;
+  private String serverUrl;
+  private Map<String, Object> options;
+  private ClientOptions clientOptions;
+  private boolean autoReconnect = false;
+  private int delayedConnectAttempt;
+  private boolean connectScheduled;
+  // connection request is in progress, cleared once socket is published or connection closed
+  private boolean connecting;
+  private boolean reconnectScheduled;
+
+  // minimal android.util.Log priority of per frame logs, frames are not logged by default
+  private volatile int frameLogLevel = Log.INFO;
+
+  // period of stats events, 0 when disabled
+  private long statsIntervalMs;
+
+  // inbound batching (null when batching is disabled)
+  private volatile MessageBatcher<String> textMessageBatcher;
+  private volatile MessageBatcher<ByteString> byteMessageBatcher;
+
+  // inbound flow control (null when disabled), takes precedence over all other delivery modes
+  private volatile InboundFlowControl inboundFlowControl;
+
+  // inbound conflation (null when conflation is disabled), takes precedence over batching
+  private volatile MessageConflater<String> textMessageConflater;
+  private volatile MessageConflater<ByteString> byteMessageConflater;
+
+  // binary frames above threshold are delivered in chunks or via file (null when disabled)
+  private volatile LargeBinaryDelivery largeBinaryDelivery;
+
+  // frames released by flow control which wait on file reader thread behind a file write,
+  // accessed on dispatch thread only
+  private int releasesOnFileReader;
+
+  // binary frames are sent over direct binary channel (takes precedence over batching)
+  private volatile boolean directBinary;
+
+  // outbound frames waiting for OkHttp buffer to drain
+  private OutboundQueue outboundQueue;
+  private long lastSendId;
+
+  // frames sent while connection is pending, replayed on open; journal is accessed on outbox
+  // thread only, other fields on dispatch thread
+  private DurableOutbox outbox;
+  private boolean outboxEnabled;
+  // opened web socket waiting for outbox replay, published once replay is done
+  private WebSocket replayingWebSocket;
+  private boolean journaledDuringReplay;
+
+  // inbound frames are written to capture file if enabled
+  private volatile FrameCapture frameCapture;
+
+  // sequence of received and delivered frames, see setupSequenceTracking
+  private volatile SequenceTracker sequenceTracker;
+
+  // constructor
+  WebSocketSession(@NonNull String connectionId, @NonNull WebSocketClient owner,
+      @NonNull Handler dispatchHandler) {
+    this.connectionId = connectionId;
+    this.owner = owner;
+    this.dispatchHandler = dispatchHandler;
+    this.reconnectScheduler = new ReconnectScheduler(dispatchHandler, owner.getNetworkMonitor(),
+        new Random());
+    this.sendProgressTracker = new SendProgressTracker(dispatchHandler,
+        () -> outboundQueue.bytesAccepted(), () -> outboundQueue.bytesSent(), this::sendProgress);
+    this.requestCorrelator = new RequestCorrelator(dispatchHandler);
+    this.pingTracker = new PingTracker(dispatchHandler, latency, requestCorrelator,
+        this::sendTextMessage);
+    this.outboundQueue = createOutboundQueue(Collections.emptyMap());
+  }
+
+  @Override
+  public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
+    Log.i(TAG, "[" + connectionId + "] WS connected. WebSocket:" + webSocket.toString());
+    this.delayedConnectAttempt = 0;
+    stats.onConnected();
+
+    // notify flutter about onOpen event, including negotiated extensions (compression) and
+    // handshake timings
+    final String extensions = response.header(ClientConfigurator.HEADER_WEB_SOCKET_EXTENSIONS);
+    final Map<String, Object> handshake = handshakeTimings(webSocket);
+    dispatchHandler.post(() -> {
+      reconnectScheduler.onConnected();
+      sendResumeFrame(webSocket);
+      // with outbox, socket is published once journal is replayed, frames sent until then go to
+      // outbox and can't overtake journaled ones
+      if (outboxEnabled) {
+        replayingWebSocket = webSocket;
+        replayOutbox();
+      } else {
+        publishWebSocket(webSocket);
+      }
+      startStats();
+      pingTracker.start();
+      owner.sendSystemEvent(SystemEventType.WS_OPENED, SystemEventContext.builder()
+          .connectionId(connectionId).extensions(extensions).handshake(handshake).build());
+    });
+  }
+
+  @Override
+  public void onMessage(@NotNull WebSocket webSocket, @NotNull String text) {
+    stats.onTextFrameIn(Utf8.size(text));
+    final FrameCapture capture = frameCapture;
+    if (capture != null) {
+      capture.capture(text);
+    }
+    if (!trackSequence(text) || requestCorrelator.complete(text)) {
+      return;
+    }
+    if (!frameFilter.accepts(text)) {
+      stats.onFilteredFrame();
+      return;
+    }
+    if (frameLogLevel <= Log.DEBUG) {
+      Log.d(TAG, "[" + connectionId + "] Text message received. content:" + text);
+    }
+    if (addToFlowControl(webSocket, text)) {
+      return;
+    }
+    final MessageConflater<String> conflater = textMessageConflater;
+    if (conflater != null) {
+      if (conflater.add(text)) {
+        stats.onConflatedFrame();
+      }
+      return;
+    }
+    final MessageBatcher<String> batcher = textMessageBatcher;
+    if (batcher != null) {
+      batcher.add(text);
+    } else {
+      dispatchHandler.post(() -> owner.deliverTextMessage(connectionId, text));
+    }
+  }
+
+  @Override
+  public void onMessage(@NotNull WebSocket webSocket, @NotNull ByteString byteString) {
+    stats.onBinaryFrameIn(byteString.size());
+    final FrameCapture capture = frameCapture;
+    if (capture != null) {
+      capture.capture(byteString);
+    }
+    if (!trackSequence(byteString)) {
+      return;
+    }
+    if (!frameFilter.accepts(byteString)) {
+      stats.onFilteredFrame();
+      return;
+    }
+    if (frameLogLevel <= Log.DEBUG) {
+      Log.d(TAG, "[" + connectionId + "] Byte message received. size:" + byteString.size());
+    }
+    if (addToFlowControl(webSocket, byteString)) {
+      return;
+    }
+    final LargeBinaryDelivery largeDelivery = largeBinaryDelivery;
+    if (largeDelivery != null && largeDelivery.isLarge(byteString)) {
+      // deliver frames batched before this one first
+      final MessageBatcher<ByteString> batcher = byteMessageBatcher;
+      if (batcher != null) {
+        dispatchHandler.post(batcher::flush);
+      }
+      largeDelivery.deliver(byteString, dispatchHandler::post,
+          payload -> owner.deliverByteMessage(connectionId, payload));
+      return;
+    }
+    if (directBinary) {
+      dispatchHandler.post(() -> owner.deliverDirectByteMessage(connectionId, byteString));
+      return;
+    }
+    final MessageConflater<ByteString> conflater = byteMessageConflater;
+    if (conflater != null) {
+      if (conflater.add(byteString)) {
+        stats.onConflatedFrame();
+      }
+      return;
+    }
+    final MessageBatcher<ByteString> batcher = byteMessageBatcher;
+    if (batcher != null) {
+      batcher.add(byteString);
+    } else {
+      dispatchHandler.post(
+          () -> owner.deliverByteMessage(connectionId, byteString.toByteArray()));
+    }
+  }
+
+  @Override
+  public void onClosing(@NotNull WebSocket webSocket, int code, @NotNull String reason) {
+    Log.i(TAG, "[" + connectionId + "] WS is about to close. Code:" + code + ", Reason:" + reason);
+    dispatchHandler.post(() -> owner.sendSystemEvent(SystemEventType.WS_CLOSING,
+        SystemEventContext.builder().connectionId(connectionId).closeCode(code)
+            .closeReason(reason).build()));
+  }
+
+  @Override
+  public void onClosed(@NotNull WebSocket webSocket, int code, @NotNull String reason) {
+    Log.i(TAG, "[" + connectionId + "] WS closed. Code:" + code + ", Reason:" + reason);
+    stats.onDisconnected();
+    dispatchHandler.post(() -> {
+      // deliver what was received before close
+      flushMessageBatching();
+      owner.sendSystemEvent(SystemEventType.WS_CLOSED,
+          SystemEventContext.builder().connectionId(connectionId).closeCode(code)
+              .closeReason(reason).build());
+      cleanUpOnClose();
+    });
+  }
+
+  @Override
+  public void onFailure(@NotNull WebSocket webSocket, @NotNull Throwable t,
+      @Nullable Response response) {
+    Log.e(TAG, "[" + connectionId + "] Error occurred on ws channel. Error:" + t.getMessage()
+        + ". Response:" + response);
+    stats.onDisconnected();
+    dispatchHandler.post(() -> {
+      flushMessageBatching();
+      owner.sendSystemEvent(SystemEventType.WS_FAILURE, SystemEventContext.builder()
+          .connectionId(connectionId)
+          .throwableType(t.getClass().getSimpleName())
+          .errorMessage(t.getMessage())
+          .causeMessage(t.getCause() != null ? t.getCause().toString() : null).build());
+      cleanUpOnClose();
+    });
+  }
+
+  /**
+   * Used to customize OkHttpClient and connect to WS Endpoint.
+   * <p>
+   * Creates a new web socket and immediately returns it. Creating a web socket initiates an
+   * asynchronous process to connect the socket. Once that succeeds or fails, `listener` will be
+   * notified. The caller must either close or cancel the returned web socket when it is no longer
+   * in use.
+   *
+   * @param serverUrl server URL.
+   * @param options   key-value map data used to configure connection.
+   */
+  void connect(String serverUrl, Map<String, Object> options) {
+
+    // explicit connect starts reconnect policy from scratch
+    reconnectScheduler.reset(ReconnectPolicy.fromOptions(options));
+    reconnectScheduled = false;
+
+    if (webSocket != null) {
+      Log.w(TAG, "WS Connection still active on new connect attempt. Disconnecting...");
+      disconnect(1001, "Connection restart."); // call disconnect and wait for onClose
+      // schedule next try and return for now...
+      tryDelayedConnect(serverUrl, options);
+      return;
+    }
+
+    // set locals
+    this.serverUrl = serverUrl;
+    this.options = options;
+    final List<String> problems = OptionsValidator.validate(options);
+    this.clientOptions = ClientOptions.fromOptions(options, problems);
+    if (!problems.isEmpty()) {
+      Log.w(TAG, "[" + connectionId + "] Invalid connect options: " + problems);
+      owner.sendSystemEvent(SystemEventType.WS_INVALID_OPTIONS, SystemEventContext.builder()
+          .connectionId(connectionId).problems(problems).build());
+    }
+    this.autoReconnect = Boolean.TRUE.equals(options.get(OPTION_AUTO_RECONNECT));
+    this.frameLogLevel = logLevelOption(options.get(OPTION_LOG_LEVEL));
+    this.directBinary = Boolean.TRUE.equals(options.get(OPTION_DIRECT_BINARY));
+    this.statsIntervalMs = Math.max(0, intOption(options, OPTION_STATS_INTERVAL_MS, 0));
+    setupPings(options);
+    setupMessageBatching(options);
+    setupMessageConflation(options);
+    setupFlowControl(options);
+    this.largeBinaryDelivery = createLargeBinaryDelivery(options);
+    outboundQueue.clear();
+    outboundQueue = createOutboundQueue(options);
+    setupOutbox(options);
+    setupCapture(options);
+    setupSequenceTracking(options);
+
+    openConnection();
+  }
+
+  /**
+   * Attempts to initiate a graceful shutdown of this web socket. Any already-enqueued messages will
+   * be transmitted before the close message is sent but subsequent calls to send will return false
+   * and their messages will not be enqueued.
+   * <p>
+   * Close code sent to server will be 1000.
+   *
+   * @param code   disconnection code
+   * @param reason Reason to disconnect
+   */
+  void disconnect(Integer code, String reason) {
+    autoReconnect = false;
+    // frames sent from now on are rejected instead of journaled
+    connecting = false;
+    cancelReconnect();
+    if (webSocket != null) {
+      webSocket.close(code != null ? code : 1000, reason != null ? reason : "Client done.");
+    } else {
+      Log.w(TAG, "WebSocket was null on disconnect.");
+    }
+  }
+
+  /**
+   * Immediately and violently releases resources held by this session.
+   */
+  void cancel() {
+    autoReconnect = false;
+    reconnectScheduler.cancel();
+    dispatchHandler.removeCallbacks(statsTask);
+    pingTracker.stop();
+    sendProgressTracker.clear();
+    requestCorrelator.failAll("06", "Connection closed.");
+    clearMessageBatching();
+    outboundQueue.clear();
+    closeOutbox();
+    closeCapture();
+    connecting = false;
+    if (replayingWebSocket != null) {
+      replayingWebSocket.cancel();
+      replayingWebSocket = null;
+    }
+    if (webSocket != null) {
+      webSocket.cancel();
+      webSocket = null;
+    }
+  }
+
+  /**
+   * Sends String message to server via established WebSocket connection.
+   * <p>
+   * This method returns true if the message was enqueued. When OkHttp outgoing buffer is above
+   * high watermark, message is kept in {@link OutboundQueue} and Flutter is notified that
+   * connection is not writable. While connection or reconnect is pending, message is appended to
+   * {@link DurableOutbox} if it is enabled. This method returns false if the message was rejected
+   * by the queue, and in any case where this web socket is closing, closed, or canceled.
+   *
+   * @param message String message to send to server
+   * @return true if successful
+   */
+  boolean sendTextMessage(String message) {
+    if (webSocket == null && isJournaling()) {
+      return appendToOutbox(message);
+    }
+    if (webSocket == null) {
+      Log.w(TAG, "WebSocket is not connected yet. Unable to send text message...");
+      stats.onFailedSend();
+      return false;
+    }
+    return sendText(webSocket, message);
+  }
+
+  /**
+   * Reads file (or its part) natively and sends it as one binary frame. Progress of the send is
+   * reported with onSendProgress events. Range is checked up front: it must lie within the file
+   * and fit into a single frame ({@link OutboundQueue#MAX_FRAME_BYTES}). File is read on file
+   * reader thread, frame is sent on dispatch thread. Must be called on dispatch thread.
+   *
+   * @param file   file to send
+   * @param offset offset of first byte to send
+   * @param length number of bytes to send, negative to send rest of file
+   * @param result completed on dispatch thread with id of the send reported in progress events,
+   *               with error "02" if frame was rejected or "04" if file can't be read
+   */
+  void sendFile(File file, long offset, long length, Result result) {
+    if (webSocket == null) {
+      Log.w(TAG, "WebSocket is not connected yet. Unable to send file...");
+      stats.onFailedSend();
+      result.error("02", "Unable to send file!", null);
+      return;
+    }
+    final long fileLength = file.length();
+    final long size = length >= 0 ? length : fileLength - offset;
+    if (offset < 0 || size < 0 || offset + size > fileLength) {
+      Log.e(TAG, "File is shorter than requested range: " + file);
+      result.error("04", "Unable to read file!", "File is shorter than requested range.");
+      return;
+    }
+    if (size > OutboundQueue.MAX_FRAME_BYTES) {
+      Log.e(TAG, "File range larger than " + OutboundQueue.MAX_FRAME_BYTES + " bytes: " + size);
+      stats.onFailedSend();
+      result.error("02", "File range too large for one frame!", size);
+      return;
+    }
+    owner.getFileReader().execute(() -> {
+      final ByteString payload;
+      try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+        source.skip(offset);
+        payload = source.readByteString(size);
+      } catch (IOException e) {
+        Log.e(TAG, "Unable to read file: " + file + ". Error:" + e.getMessage());
+        dispatchHandler.post(() -> result.error("04", "Unable to read file!", e.getMessage()));
+        return;
+      }
+      dispatchHandler.post(() -> {
+        if (!sendByteMessage(payload)) {
+          Log.e(TAG, "Unable to send file to Ws server!");
+          result.error("02", "Unable to send file!", null);
+          return;
+        }
+        final long sendId = ++lastSendId;
+        sendProgressTracker.track(sendId, payload.size());
+        result.success(sendId);
+      });
+    });
+  }
+
+  /**
+   * Send ByteString to server via established WebSocket connection.
+   * <p>
+   * This method returns true if the message was enqueued. When OkHttp outgoing buffer (16 MiB) is
+   * above high watermark, message is kept in {@link OutboundQueue} and Flutter is notified that
+   * connection is not writable. While connection or reconnect is pending, message is appended to
+   * {@link DurableOutbox} if it is enabled. This method returns false if the message was rejected
+   * by the queue, and in any case where this web socket is closing, closed, or canceled. This
+   * method returns immediately.
+   *
+   * @param message ByteString message to send to server
+   * @return true if successful
+   */
+  boolean sendByteMessage(ByteString message) {
+    if (webSocket == null && isJournaling()) {
+      return appendToOutbox(message);
+    }
+    if (webSocket == null) {
+      Log.w(TAG, "WebSocket is not connected yet. Unable to send byte message...");
+      stats.onFailedSend();
+      return false;
+    }
+    return sendBytes(webSocket, message);
+  }
+
+  /**
+   * Sends String messages in order. Sending stops at first message which is not accepted, so
+   * accepted messages are always a prefix of the list.
+   *
+   * @param messages String messages to send to server
+   * @return number of accepted messages
+   */
+  int sendTextMessages(List<String> messages) {
+    if (messages == null) {
+      return 0;
+    }
+    int accepted = 0;
+    for (String message : messages) {
+      if (message == null || !sendTextMessage(message)) {
+        break;
+      }
+      accepted++;
+    }
+    return accepted;
+  }
+
+  /**
+   * Sends binary messages in order. Sending stops at first message which is not accepted, so
+   * accepted messages are always a prefix of the list.
+   *
+   * @param messages binary messages to send to server
+   * @return number of accepted messages
+   */
+  int sendByteMessages(List<byte[]> messages) {
+    if (messages == null) {
+      return 0;
+    }
+    int accepted = 0;
+    for (byte[] message : messages) {
+      if (!sendByteMessage(ByteString.of(message != null ? message : new byte[0]))) {
+        break;
+      }
+      accepted++;
+    }
+    return accepted;
+  }
+
+  /**
+   * Sends application level ping configured with pingFrame option and completes result with its
+   * round-trip time in milliseconds.
+   *
+   * @param result result of ping method call, may be completed on any thread
+   * @return false if pings are not configured, not connected or ping was not sent
+   */
+  boolean ping(Result result) {
+    return pingTracker.ping(result);
+  }
+
+  /**
+   * Sends JSON request and completes result with its reply, matched by id on reader thread. Reply
+   * is not delivered to text message stream. If no reply arrives in time, result fails with error
+   * "05", pending requests fail with error "06" when connection is closed.
+   * <p>
+   * Request is registered before it is sent, so a reply which arrives on reader thread before
+   * send returns is matched. Request is removed again if it could not be sent.
+   *
+   * @param payload   JSON request, must contain id
+   * @param idField   dot separated path of id in request and reply
+   * @param timeoutMs time to wait for reply
+   * @param result    result of request method call, may be completed on any thread
+   * @return false if request has no id, same id is pending or request was not sent
+   */
+  boolean request(String payload, String idField, long timeoutMs, Result result) {
+    if (webSocket == null || payload == null) {
+      Log.w(TAG, "WebSocket is not connected yet. Unable to send request...");
+      return false;
+    }
+    // register first, reply may be read before send returns
+    final String id = requestCorrelator.register(payload, idField, timeoutMs, result);
+    if (id == null) {
+      return false;
+    }
+    if (!sendTextMessage(payload)) {
+      requestCorrelator.cancel(id);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return number of frames waiting in outbound queue
+   */
+  int queueSize() {
+    return outboundQueue.queueSize();
+  }
+
+  /**
+   * @return bytes waiting in outbound queue and OkHttp outgoing buffer
+   */
+  long bytesQueued() {
+    return outboundQueue.bytesQueued();
+  }
+
+  /**
+   * Grants inbound credits when flow control is enabled. Must be called on dispatch thread.
+   *
+   * @param credits number of messages Flutter is ready to receive
+   */
+  void requestMessages(long credits) {
+    final InboundFlowControl flowControl = inboundFlowControl;
+    if (flowControl != null) {
+      flowControl.request(credits);
+    } else {
+      Log.w(TAG, "[" + connectionId + "] Flow control is not enabled. Credits ignored.");
+    }
+  }
+
+  /**
+   * @return frames waiting for credits
+   */
+  int inboundBufferedFrames() {
+    final InboundFlowControl flowControl = inboundFlowControl;
+    return flowControl != null ? flowControl.getBufferedFrames() : 0;
+  }
+
+  /**
+   * @return frames dropped because inbound buffer was full
+   */
+  long inboundDroppedFrames() {
+    final InboundFlowControl flowControl = inboundFlowControl;
+    return flowControl != null ? flowControl.getDroppedFrames() : 0;
+  }
+
+  /**
+   * @return connection counters and inbound buffer state sent to Flutter
+   */
+  Map<String, Object> statsToMap() {
+    return owner.statsToMap(stats, inboundBufferedFrames(), inboundDroppedFrames());
+  }
+
+  /**
+   * Closes outbox journal. Frames which were not replayed stay on disk.
+   */
+  void closeOutbox() {
+    if (!outboxEnabled) {
+      return;
+    }
+    outboxEnabled = false;
+    owner.getOutboxWriter().execute(() -> {
+      if (outbox != null) {
+        outbox.close();
+        outbox = null;
+      }
+    });
+  }
+
+  /// PRIVATE
+
+  private void openConnection() {
+    connecting = true;
+
+    // prepare request
+    final Request.Builder requestBuilder = new Request.Builder().url(serverUrl)
+        .tag(ConnectionTimings.class, new ConnectionTimings());
+    final Object resumeQueryParam = options.get(OPTION_RESUME_QUERY_PARAM);
+    final long lastSequence = resumeSequenceTracking();
+    if (resumeQueryParam instanceof String && lastSequence != SequenceTracker.NONE) {
+      // ask server to continue after last received frame
+      requestBuilder.url(requestBuilder.build().url().newBuilder()
+          .setQueryParameter((String) resumeQueryParam, String.valueOf(lastSequence)).build());
+    }
+    final Object headers = options.get(OPTION_HEADERS);
+    if (headers instanceof Map) {
+      for (Entry<?, ?> header : ((Map<?, ?>) headers).entrySet()) {
+        requestBuilder.addHeader(String.valueOf(header.getKey()),
+            String.valueOf(header.getValue()));
+      }
+    }
+    final Request request = requestBuilder.build();
+
+    // replay captured session instead of connecting
+    final Object replayPath = options.get(OPTION_REPLAY_PATH);
+    if (replayPath instanceof String) {
+      final Object speed = options.get(OPTION_REPLAY_SPEED);
+      final ReplayWebSocket replay = new ReplayWebSocket(request, new File((String) replayPath),
+          speed instanceof Number ? ((Number) speed).doubleValue() : 1, this);
+      // start after captures which were closed before are flushed
+      owner.getCaptureWriter().execute(replay::start);
+      Log.i(TAG, "[" + connectionId + "] Replaying captured session: " + replayPath);
+      return;
+    }
+
+    // customize default ws client
+    final OkHttpClient client = owner.getClientConfigurator()
+        .configure(owner.okHttpClient, clientOptions);
+
+    // connect to server and register as listener
+    client.newWebSocket(request, this);
+
+    // done
+    Log.i(TAG, "[" + connectionId + "] Connection request sent to: " + serverUrl);
+  }
+
+  /**
+   * Retries explicit connect while previous connection of this session is still closing. This is
+   * not a reconnect: connection did not fail, Flutter asked for a new one, so the wait is fixed and
+   * short instead of {@link ReconnectScheduler} backoff with jitter, it is not limited by reconnect
+   * policy attempts and it does not emit reconnecting events. After a few attempts previous
+   * connection is cancelled, so connect always completes. Scheduled restart suppresses automatic
+   * reconnect of the closing connection.
+   *
+   * @param serverUrl server URL.
+   * @param options   connect options.
+   */
+  private void tryDelayedConnect(String serverUrl, Map<String, Object> options) {
+    delayedConnectAttempt++;
+    Log.i(TAG, "Scheduling delayed connect #" + delayedConnectAttempt);
+    if (delayedConnectAttempt > RESTART_CONNECT_MAX_GRACEFUL_ATTEMPTS) {
+      if (webSocket != null) {
+        // kill current web-socket session
+        Log.w(TAG, "Killing violently web socket connection...");
+        webSocket.cancel();
+      }
+    }
+    connectScheduled = true;
+    dispatchHandler.postDelayed(() -> {
+      connectScheduled = false;
+      connect(serverUrl, options);
+    }, RESTART_CONNECT_DELAY_MS);
+  }
+
+  /**
+   * Creates message batchers if batching is requested in connect options. When enabled, every
+   * event on text and byte channels is a list of messages instead of a single message.
+   *
+   * @param options connect options
+   */
+  private void setupMessageBatching(Map<String, Object> options) {
+    clearMessageBatching();
+    if (!Boolean.TRUE.equals(options.get(OPTION_BATCH_MESSAGES))) {
+      return;
+    }
+    final int maxSize = intOption(options, OPTION_BATCH_MAX_SIZE, DEFAULT_BATCH_MAX_SIZE);
+    final int windowMs = intOption(options, OPTION_BATCH_WINDOW_MS, DEFAULT_BATCH_WINDOW_MS);
+    textMessageBatcher = new MessageBatcher<>(dispatchHandler, maxSize, windowMs,
+        batch -> owner.deliverTextMessage(connectionId, batch));
+    byteMessageBatcher = new MessageBatcher<>(dispatchHandler, maxSize, windowMs, batch -> {
+      final List<byte[]> messages = new ArrayList<>(batch.size());
+      for (ByteString byteString : batch) {
+        messages.add(byteString.toByteArray());
+      }
+      owner.deliverByteMessage(connectionId, messages);
+    });
+    Log.i(TAG, "Message batching enabled. maxSize:" + maxSize + ", windowMs:" + windowMs);
+  }
+
+  /**
+   * Creates message conflaters if conflation key is set in connect options. Text frames are keyed
+   * by JSON field path, binary frames by their first bytes. Conflated frames are delivered as
+   * batches when batching is enabled too, otherwise one by one. Conflaters drain on main thread,
+   * so frames are conflated while Flutter is busy even with background dispatch.
+   *
+   * @param options connect options
+   */
+  private void setupMessageConflation(Map<String, Object> options) {
+    final boolean batching = Boolean.TRUE.equals(options.get(OPTION_BATCH_MESSAGES));
+    final Object keyPath = options.get(OPTION_CONFLATE_KEY_PATH);
+    if (keyPath instanceof String && !((String) keyPath).isEmpty()) {
+      textMessageConflater = new MessageConflater<>(owner.getMainThreadHandler(),
+          new JsonKeyExtractor((String) keyPath),
+          frames -> {
+            if (batching) {
+              owner.deliverTextMessageOnMainThread(connectionId, frames);
+            } else {
+              for (String frame : frames) {
+                owner.deliverTextMessageOnMainThread(connectionId, frame);
+              }
+            }
+          });
+      Log.i(TAG, "Text message conflation enabled. keyPath:" + keyPath);
+    }
+    final int prefixBytes = intOption(options, OPTION_CONFLATE_KEY_PREFIX_BYTES, 0);
+    if (prefixBytes > 0) {
+      byteMessageConflater = new MessageConflater<>(owner.getMainThreadHandler(),
+          frame -> frame.size() >= prefixBytes ? frame.substring(0, prefixBytes) : null,
+          frames -> {
+            if (batching) {
+              final List<byte[]> messages = new ArrayList<>(frames.size());
+              for (ByteString frame : frames) {
+                messages.add(frame.toByteArray());
+              }
+              owner.deliverByteMessageOnMainThread(connectionId, messages);
+            } else {
+              for (ByteString frame : frames) {
+                owner.deliverByteMessageOnMainThread(connectionId, frame.toByteArray());
+              }
+            }
+          });
+      Log.i(TAG, "Byte message conflation enabled. prefixBytes:" + prefixBytes);
+    }
+  }
+
+  /**
+   * Creates inbound flow control if requested in connect options. Frames are then delivered only
+   * up to credits granted by Flutter, others wait in bounded buffer.
+   *
+   * @param options connect options
+   */
+  private void setupFlowControl(Map<String, Object> options) {
+    if (!Boolean.TRUE.equals(options.get(OPTION_FLOW_CONTROL))) {
+      return;
+    }
+    final int maxFrames = intOption(options, OPTION_INBOUND_BUFFER_MAX_FRAMES,
+        DEFAULT_INBOUND_BUFFER_MAX_FRAMES);
+    final OverflowPolicy policy =
+        OverflowPolicy.fromOption(options.get(OPTION_INBOUND_OVERFLOW_POLICY));
+    inboundFlowControl = new InboundFlowControl(dispatchHandler, maxFrames, policy,
+        intOption(options, OPTION_INBOUND_INITIAL_CREDITS, 0), this::releaseFrame,
+        this::sendInboundOverflow);
+    Log.i(TAG, "Inbound flow control enabled. maxFrames:" + maxFrames + ", policy:" + policy);
+  }
+
+  private static LargeBinaryDelivery createLargeBinaryDelivery(Map<String, Object> options) {
+    final int threshold = intOption(options, OPTION_LARGE_BINARY_THRESHOLD, 0);
+    if (threshold <= 0) {
+      return null;
+    }
+    final Object directory = options.get(OPTION_LARGE_BINARY_DIRECTORY);
+    return new LargeBinaryDelivery(threshold,
+        LargeBinaryDelivery.Mode.fromOption(options.get(OPTION_LARGE_BINARY_MODE)),
+        intOption(options, OPTION_LARGE_BINARY_CHUNK_SIZE, DEFAULT_LARGE_BINARY_CHUNK_SIZE),
+        directory instanceof String ? new File((String) directory) : null);
+  }
+
+  /**
+   * Passes frame to flow control if enabled. Fails connection if flow control buffer overflowed.
+   *
+   * @return true if frame was taken by flow control
+   */
+  private boolean addToFlowControl(WebSocket webSocket, Object frame) {
+    final InboundFlowControl flowControl = inboundFlowControl;
+    if (flowControl == null) {
+      return false;
+    }
+    if (!flowControl.add(frame)) {
+      Log.w(TAG, "[" + connectionId + "] Inbound buffer overflow. Closing connection...");
+      webSocket.close(1008, "Inbound buffer overflow.");
+    }
+    return true;
+  }
+
+  /**
+   * Delivers frame released by flow control. Large frame delivered via file is written on file
+   * reader thread and its path is posted back. Frames released while a write is pending follow it
+   * through file reader thread, so frames are still delivered in order.
+   */
+  private void releaseFrame(Object frame) {
+    if (!deliverSequence(frame)) {
+      return;
+    }
+    final LargeBinaryDelivery largeDelivery = largeBinaryDelivery;
+    final boolean writesFile = largeDelivery != null && largeDelivery.writesFiles()
+        && frame instanceof ByteString && largeDelivery.isLarge((ByteString) frame);
+    if (!writesFile && releasesOnFileReader == 0) {
+      deliverReleasedFrame(largeDelivery, frame);
+      return;
+    }
+    releasesOnFileReader++;
+    owner.getFileReader().execute(() -> {
+      if (writesFile) {
+        largeDelivery.deliver((ByteString) frame, dispatchHandler::post,
+            payload -> owner.deliverByteMessage(connectionId, payload));
+      }
+      dispatchHandler.post(() -> {
+        releasesOnFileReader--;
+        if (!writesFile) {
+          deliverReleasedFrame(largeDelivery, frame);
+        }
+      });
+    });
+  }
+
+  private void deliverReleasedFrame(LargeBinaryDelivery largeDelivery, Object frame) {
+    if (frame instanceof String) {
+      owner.deliverTextMessage(connectionId, frame);
+    } else if (largeDelivery != null && largeDelivery.isLarge((ByteString) frame)) {
+      largeDelivery.deliver((ByteString) frame, Runnable::run,
+          payload -> owner.deliverByteMessage(connectionId, payload));
+    } else if (directBinary) {
+      owner.deliverDirectByteMessage(connectionId, (ByteString) frame);
+    } else {
+      owner.deliverByteMessage(connectionId, ((ByteString) frame).toByteArray());
+    }
+  }
+
+  private void sendProgress(long sendId, long bytesSent, long totalBytes) {
+    owner.sendSystemEvent(SystemEventType.WS_SEND_PROGRESS, SystemEventContext.builder()
+        .connectionId(connectionId)
+        .sendId(sendId)
+        .bytesSent(bytesSent)
+        .totalBytes(totalBytes)
+        .build());
+  }
+
+  private void sendInboundOverflow() {
+    final InboundFlowControl flowControl = inboundFlowControl;
+    if (flowControl != null) {
+      owner.sendSystemEvent(SystemEventType.WS_INBOUND_OVERFLOW, SystemEventContext.builder()
+          .connectionId(connectionId)
+          .bufferedFrames(flowControl.getBufferedFrames())
+          .droppedFrames(flowControl.getDroppedFrames())
+          .build());
+    }
+  }
+
+  private void clearMessageBatching() {
+    if (textMessageBatcher != null) {
+      textMessageBatcher.clear();
+      textMessageBatcher = null;
+    }
+    if (byteMessageBatcher != null) {
+      byteMessageBatcher.clear();
+      byteMessageBatcher = null;
+    }
+    if (textMessageConflater != null) {
+      textMessageConflater.clear();
+      textMessageConflater = null;
+    }
+    if (byteMessageConflater != null) {
+      byteMessageConflater.clear();
+      byteMessageConflater = null;
+    }
+    if (inboundFlowControl != null) {
+      inboundFlowControl.clear();
+      inboundFlowControl = null;
+    }
+  }
+
+  /**
+   * Delivers frames which are still waiting in batchers and conflaters. Must be called on dispatch
+   * thread.
+   */
+  private void flushMessageBatching() {
+    if (textMessageBatcher != null) {
+      textMessageBatcher.flush();
+    }
+    if (byteMessageBatcher != null) {
+      byteMessageBatcher.flush();
+    }
+    if (textMessageConflater != null) {
+      textMessageConflater.flush();
+    }
+    if (byteMessageConflater != null) {
+      byteMessageConflater.flush();
+    }
+  }
+
+  /**
+   * Opens durable outbox on outbox thread if requested in connect options. Outbox of previous
+   * connect is closed, its journal stays on disk and is picked up again when same path is used.
+   *
+   * @param options connect options
+   */
+  private void setupOutbox(Map<String, Object> options) {
+    closeOutbox();
+    final Object path = options.get(OPTION_OUTBOX_PATH);
+    if (!(path instanceof String)) {
+      return;
+    }
+    outboxEnabled = true;
+    final File file = new File((String) path);
+    final int maxBytes = intOption(options, OPTION_OUTBOX_MAX_BYTES, DEFAULT_OUTBOX_MAX_BYTES);
+    final Object ttlMs = options.get(OPTION_OUTBOX_TTL_MS);
+    owner.getOutboxWriter().execute(() -> {
+      try {
+        outbox = new DurableOutbox(file, maxBytes,
+            ttlMs instanceof Number ? ((Number) ttlMs).longValue() : 0);
+      } catch (IOException e) {
+        Log.e(TAG, "[" + connectionId + "] Unable to open outbox. Error:" + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Starts capturing inbound frames if requested in connect options.
+   *
+   * @param options connect options
+   */
+  private void setupCapture(Map<String, Object> options) {
+    closeCapture();
+    final Object path = options.get(OPTION_CAPTURE_PATH);
+    if (!(path instanceof String)) {
+      return;
+    }
+    try {
+      frameCapture = new FrameCapture(new File((String) path), owner.getCaptureWriter());
+    } catch (IOException e) {
+      Log.e(TAG, "[" + connectionId + "] Unable to open capture file. Error:" + e.getMessage());
+    }
+  }
+
+  private void closeCapture() {
+    final FrameCapture capture = frameCapture;
+    if (capture != null) {
+      frameCapture = null;
+      capture.close();
+    }
+  }
+
+  /**
+   * Configures application level pings. Scheduled pings share pingInterval with OkHttp pings, a
+   * reply must arrive before next ping is due.
+   *
+   * @param options connect options
+   */
+  private void setupPings(Map<String, Object> options) {
+    final Object pingFrame = options.get(OPTION_PING_FRAME);
+    final Object idField = options.get(OPTION_PING_ID_FIELD);
+    final long pingIntervalMs = clientOptions.getPingIntervalSec() * 1000;
+    pingTracker.configure(pingFrame instanceof String ? (String) pingFrame : null,
+        idField instanceof String ? (String) idField : DEFAULT_REQUEST_ID_FIELD, pingIntervalMs,
+        pingIntervalMs > 0 ? pingIntervalMs : DEFAULT_REQUEST_TIMEOUT_MS);
+  }
+
+  /**
+   * Creates sequence tracker if requested in connect options.
+   * <p>
+   * Every explicit connect gets a new tracker, so a server which restarted its sequence is not
+   * taken for duplicates. Automatic reconnects keep the tracker and resume after last delivered
+   * sequence. With inbound flow control, frame counts as delivered once it is released from flow
+   * control buffer, otherwise once it is received. Frames dropped by filters or completing a
+   * request count as delivered too, they would be dropped again.
+   *
+   * @param options connect options
+   */
+  private void setupSequenceTracking(Map<String, Object> options) {
+    final Object keyPath = options.get(OPTION_RESUME_SEQ_KEY_PATH);
+    final String textKeyPath = keyPath instanceof String ? (String) keyPath : null;
+    final int binaryOffset = intOption(options, OPTION_RESUME_SEQ_BINARY_OFFSET, -1);
+    if (textKeyPath == null && binaryOffset < 0) {
+      sequenceTracker = null;
+    } else {
+      sequenceTracker = new SequenceTracker(textKeyPath, binaryOffset,
+          new SequenceTracker.Listener() {
+            @Override
+            public void onGap(long expectedSequence, long receivedSequence) {
+              sendSequenceEvent(SystemEventType.WS_SEQUENCE_GAP, expectedSequence,
+                  receivedSequence);
+            }
+
+            @Override
+            public void onDuplicate(long lastSequence, long receivedSequence) {
+              stats.onDuplicateFrame();
+              sendSequenceEvent(SystemEventType.WS_DUPLICATE_FRAME, lastSequence + 1,
+                  receivedSequence);
+            }
+          });
+    }
+  }
+
+  /**
+   * Tracks sequence of received frame. Called on reader thread.
+   *
+   * @return false if frame is a duplicate and must be dropped
+   */
+  private boolean trackSequence(Object frame) {
+    final SequenceTracker tracker = sequenceTracker;
+    if (tracker == null) {
+      return true;
+    }
+    final long sequence = tracker.sequenceOf(frame);
+    if (!tracker.track(sequence)) {
+      return false;
+    }
+    // with flow control, frame is delivered when it is released
+    if (inboundFlowControl == null) {
+      tracker.deliver(sequence);
+    }
+    return true;
+  }
+
+  /**
+   * Moves resume point to frame released by flow control. Called on dispatch thread.
+   *
+   * @return false if frame was already delivered and must be dropped
+   */
+  private boolean deliverSequence(Object frame) {
+    final SequenceTracker tracker = sequenceTracker;
+    if (tracker == null || tracker.deliver(tracker.sequenceOf(frame))) {
+      return true;
+    }
+    stats.onDuplicateFrame();
+    return false;
+  }
+
+  /**
+   * @return sequence of last delivered frame or {@link SequenceTracker#NONE}, new connection is
+   *     resumed after it
+   */
+  private long resumeSequenceTracking() {
+    final SequenceTracker tracker = sequenceTracker;
+    return tracker != null ? tracker.resume() : SequenceTracker.NONE;
+  }
+
+  private long lastSequence() {
+    final SequenceTracker tracker = sequenceTracker;
+    return tracker != null ? tracker.getResumeSequence() : SequenceTracker.NONE;
+  }
+
+  private void sendSequenceEvent(SystemEventType type, long expectedSequence,
+      long receivedSequence) {
+    dispatchHandler.post(() -> owner.sendSystemEvent(type, SystemEventContext.builder()
+        .connectionId(connectionId)
+        .expectedSequence(expectedSequence)
+        .receivedSequence(receivedSequence)
+        .build()));
+  }
+
+  /**
+   * Sends resume frame with last received sequence, if configured and anything was received. Must
+   * be called on dispatch thread, before outbox is replayed.
+   *
+   * @param webSocket opened web socket
+   */
+  private void sendResumeFrame(WebSocket webSocket) {
+    final Object resumeFrame = options != null ? options.get(OPTION_RESUME_FRAME) : null;
+    final long lastSequence = lastSequence();
+    if (resumeFrame instanceof String && lastSequence != SequenceTracker.NONE) {
+      sendText(webSocket, ((String) resumeFrame)
+          .replace(RESUME_SEQ_PLACEHOLDER, String.valueOf(lastSequence)));
+    }
+  }
+
+  /**
+   * @return timings recorded for handshake request of web socket, with openMs measured from
+   * connect request to open, or null if request was not traced
+   */
+  private static Map<String, Object> handshakeTimings(WebSocket webSocket) {
+    final Request request = webSocket.request();
+    final ConnectionTimings timings = request != null
+        ? request.tag(ConnectionTimings.class) : null;
+    if (timings == null) {
+      return null;
+    }
+    final Map<String, Object> result = timings.toMap();
+    result.put(ARGUMENT_OPEN_MS, (System.nanoTime() - timings.getCreatedAtNanos()) / 1e6);
+    return result;
+  }
+
+  /**
+   * @return true if frames sent while not connected are journaled: outbox is enabled and
+   *     connection or reconnect is pending. After explicit disconnect frames are rejected.
+   */
+  private boolean isJournaling() {
+    return outboxEnabled && (connecting || reconnectScheduled || connectScheduled);
+  }
+
+  /**
+   * Appends frame to outbox on outbox thread. Frame is accepted right away, if journal is full or
+   * can't be written, frame is logged and counted as failed send.
+   */
+  private boolean appendToOutbox(Object frame) {
+    if (replayingWebSocket != null) {
+      journaledDuringReplay = true;
+    }
+    owner.getOutboxWriter().execute(() -> {
+      if (outbox == null || !outbox.append(frame)) {
+        Log.w(TAG, "[" + connectionId + "] Frame not journaled, outbox is full or closed.");
+        dispatchHandler.post(stats::onFailedSend);
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Reads frames kept in outbox on outbox thread and sends them on dispatch thread. Socket is
+   * published once no frame was journaled during replay, so replayed frames precede new ones.
+   * Must be called on dispatch thread.
+   */
+  private void replayOutbox() {
+    journaledDuringReplay = false;
+    owner.getOutboxWriter().execute(() -> {
+      final List<DurableOutbox.Record> records =
+          outbox != null ? outbox.read() : Collections.emptyList();
+      dispatchHandler.post(() -> sendReplayedFrames(records));
+    });
+  }
+
+  private void sendReplayedFrames(List<DurableOutbox.Record> records) {
+    final WebSocket webSocket = replayingWebSocket;
+    if (webSocket == null) {
+      // closed during replay, frames stay in journal
+      return;
+    }
+    int processed = 0;
+    int replayed = 0;
+    for (DurableOutbox.Record record : records) {
+      if (!record.isExpired()) {
+        if (!(record.frame instanceof String ? sendText(webSocket, (String) record.frame)
+            : sendBytes(webSocket, (ByteString) record.frame))) {
+          // socket is closing, rest of frames stay in journal
+          break;
+        }
+        replayed++;
+      }
+      processed++;
+    }
+    if (processed > 0) {
+      final int removed = processed;
+      owner.getOutboxWriter().execute(() -> {
+        if (outbox != null) {
+          outbox.remove(removed);
+        }
+      });
+      stats.onOutboxReplay(replayed, processed - replayed);
+      Log.i(TAG, "[" + connectionId + "] Outbox replayed. replayed:" + replayed + ", expired:"
+          + (processed - replayed));
+    }
+    if (processed < records.size()) {
+      return;
+    }
+    if (journaledDuringReplay) {
+      replayOutbox();
+    } else {
+      publishWebSocket(webSocket);
+    }
+  }
+
+  /**
+   * Makes opened web socket available to senders. Must be called on dispatch thread.
+   */
+  private void publishWebSocket(WebSocket webSocket) {
+    this.webSocket = webSocket;
+    replayingWebSocket = null;
+    connecting = false;
+  }
+
+  private boolean sendText(WebSocket webSocket, String message) {
+    // UTF-8 size is computed once, for send queue and stats
+    final long size = Utf8.size(message);
+    if (outboundQueue.send(webSocket, message, size)) {
+      stats.onTextFrameOut(size);
+      return true;
+    }
+    stats.onFailedSend();
+    return false;
+  }
+
+  private boolean sendBytes(WebSocket webSocket, ByteString message) {
+    if (outboundQueue.send(webSocket, message, message.size())) {
+      stats.onBinaryFrameOut(message.size());
+      return true;
+    }
+    stats.onFailedSend();
+    return false;
+  }
+
+  private OutboundQueue createOutboundQueue(Map<String, Object> options) {
+    return new OutboundQueue(dispatchHandler,
+        intOption(options, OPTION_SEND_HIGH_WATERMARK, DEFAULT_SEND_HIGH_WATERMARK),
+        intOption(options, OPTION_SEND_LOW_WATERMARK, DEFAULT_SEND_LOW_WATERMARK),
+        intOption(options, OPTION_SEND_QUEUE_MAX_BYTES, DEFAULT_SEND_QUEUE_MAX_BYTES),
+        DropPolicy.fromOption(options.get(OPTION_SEND_DROP_POLICY)),
+        writable -> owner.sendSystemEvent(
+            writable ? SystemEventType.WS_WRITABLE : SystemEventType.WS_NOT_WRITABLE,
+            SystemEventContext.builder().connectionId(connectionId)
+                .bytesQueued(outboundQueue.bytesQueued()).build()),
+        sendProgressTracker::onDropped);
+  }
+
+  /**
+   * Maps logLevel option ("verbose", "debug", "info", "warn", "error") to android.util.Log
+   * priority. Unknown or missing value disables per frame logging.
+   */
+  private static int logLevelOption(Object value) {
+    if ("verbose".equals(value)) {
+      return Log.VERBOSE;
+    } else if ("debug".equals(value)) {
+      return Log.DEBUG;
+    } else if ("warn".equals(value)) {
+      return Log.WARN;
+    } else if ("error".equals(value)) {
+      return Log.ERROR;
+    }
+    return Log.INFO;
+  }
+
+  private static int intOption(Map<String, Object> options, String key, int defaultValue) {
+    final Object value = options.get(key);
+    return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+  }
+
+  /**
+   * Schedules next reconnect attempt and notifies Flutter about it. If all attempts are used,
+   * Flutter is notified that reconnecting failed. Must be called on dispatch thread.
+   */
+  private void scheduleReconnect() {
+    reconnectScheduled = true;
+    final long delayMs = reconnectScheduler.schedule(() -> {
+      reconnectScheduled = false;
+      openConnection();
+    });
+    if (delayMs < 0) {
+      Log.w(TAG, "[" + connectionId + "] All reconnect attempts failed.");
+      reconnectScheduled = false;
+      autoReconnect = false;
+      owner.sendSystemEvent(SystemEventType.WS_RECONNECT_FAILED, SystemEventContext.builder()
+          .connectionId(connectionId)
+          .reconnectAttempt(reconnectScheduler.getAttempt()).build());
+      return;
+    }
+    stats.onReconnectAttempt();
+    owner.sendSystemEvent(SystemEventType.WS_RECONNECTING, SystemEventContext.builder()
+        .connectionId(connectionId)
+        .reconnectAttempt(reconnectScheduler.getAttempt())
+        .reconnectDelayMs(delayMs).build());
+  }
+
+  private void cancelReconnect() {
+    reconnectScheduler.cancel();
+    if (reconnectScheduled) {
+      reconnectScheduled = false;
+      if (webSocket == null && !connectScheduled) {
+        closeCapture();
+        owner.onSessionClosed(this);
+      }
+    }
+  }
+
+  /**
+   * Starts periodic stats events if enabled in connect options.
+   */
+  private void startStats() {
+    dispatchHandler.removeCallbacks(statsTask);
+    if (statsIntervalMs > 0) {
+      dispatchHandler.postDelayed(statsTask, statsIntervalMs);
+    }
+  }
+
+  private void sendStats() {
+    owner.sendSystemEvent(SystemEventType.WS_STATS, SystemEventContext.builder()
+        .connectionId(connectionId).stats(statsToMap()).build());
+    dispatchHandler.postDelayed(statsTask, statsIntervalMs);
+  }
+
+  private void cleanUpOnClose() {
+    webSocket = null;
+    replayingWebSocket = null;
+    connecting = false;
+    if (inboundFlowControl != null) {
+      inboundFlowControl.onDisconnected();
+    }
+    outboundQueue.clear();
+    dispatchHandler.removeCallbacks(statsTask);
+    pingTracker.stop();
+    sendProgressTracker.clear();
+    requestCorrelator.failAll("06", "Connection closed.");
+    if (autoReconnect && !connectScheduled) {
+      scheduleReconnect();
+    }
+    if (!connectScheduled && !reconnectScheduled) {
+      closeCapture();
+      owner.onSessionClosed(this);
+    }
+  }
+}
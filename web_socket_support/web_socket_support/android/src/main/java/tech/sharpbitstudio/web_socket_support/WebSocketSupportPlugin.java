@@ -1,6 +1,11 @@
 package tech.sharpbitstudio.web_socket_support;
 
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PackageManager.NameNotFoundException;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
 import android.util.Log;
 import androidx.annotation.NonNull;
@@ -8,6 +13,8 @@ import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodChannel;
 import okhttp3.OkHttpClient;
+import tech.sharpbitstudio.web_socket_support.delivery.DirectBinaryChannel;
+import tech.sharpbitstudio.web_socket_support.reconnect.ConnectivityNetworkMonitor;
 
 /**
  * WebSocketSupportPlugin
@@ -20,6 +27,12 @@ public class WebSocketSupportPlugin implements FlutterPlugin {
   public static final String METHOD_CHANNEL_NAME = PLUGIN_NAME + "/methods";
   public static final String EVENT_CHANNEL_NAME_TEXT_MESSAGES = PLUGIN_NAME + "/text-messages";
   public static final String EVENT_CHANNEL_NAME_BINARY_MESSAGES = PLUGIN_NAME + "/binary-messages";
+  public static final String DIRECT_CHANNEL_NAME_BINARY_MESSAGES = PLUGIN_NAME + "/binary-direct";
+
+  /// Application meta-data flag (see README). When true, sessions run on a dedicated background
+  /// thread. Method calls are still decoded on main thread before they are posted to it, and every
+  /// platform channel call (events, messages, results) is posted back to main thread one by one.
+  public static final String META_DATA_BACKGROUND_DISPATCH = PLUGIN_NAME + ".backgroundDispatch";
 
   // locals
   /// The MethodChannel and EventChannels used for communication between Flutter and native Android
@@ -30,6 +43,7 @@ public class WebSocketSupportPlugin implements FlutterPlugin {
   private EventChannel textMessageChannel;
   private EventChannel binaryMessageChannel;
   private WebSocketClient webSocketClient;
+  private HandlerThread dispatchThread;
 
   // shared OkHttpClient
   private final OkHttpClient okHttpClient = new OkHttpClient();
@@ -49,10 +63,23 @@ public class WebSocketSupportPlugin implements FlutterPlugin {
     binaryMessageChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(),
         EVENT_CHANNEL_NAME_BINARY_MESSAGES);
 
+    // dispatch handler (main thread by default)
+    final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    Handler dispatchHandler = mainThreadHandler;
+    if (isBackgroundDispatchEnabled(flutterPluginBinding.getApplicationContext())) {
+      dispatchThread = new HandlerThread("WebSocketSupportDispatch");
+      dispatchThread.start();
+      dispatchHandler = new Handler(dispatchThread.getLooper());
+      Log.i(TAG, "Background dispatch enabled.");
+    }
+
     // create WebSocketClient
-    webSocketClient = new WebSocketClient(okHttpClient,
-        new Handler(Looper.getMainLooper()), new ClientConfigurator(),
-        methodChannel, textMessageChannel, binaryMessageChannel);
+    webSocketClient = new WebSocketClient(okHttpClient, mainThreadHandler, dispatchHandler,
+        new ClientConfigurator(),
+        new ConnectivityNetworkMonitor(flutterPluginBinding.getApplicationContext()),
+        methodChannel, textMessageChannel, binaryMessageChannel,
+        new DirectBinaryChannel(flutterPluginBinding.getBinaryMessenger(),
+            DIRECT_CHANNEL_NAME_BINARY_MESSAGES));
 
     // log success
     Log.i(TAG, "WebSocketSupportPlugin successfully initialized.");
@@ -67,6 +94,12 @@ public class WebSocketSupportPlugin implements FlutterPlugin {
       webSocketClient = null;
     }
 
+    // stop dispatch thread after pending tasks (session clean-up) are done
+    if (dispatchThread != null) {
+      dispatchThread.quitSafely();
+      dispatchThread = null;
+    }
+
     // remove all handlers
     if (methodChannel != null) {
       methodChannel.setMethodCallHandler(null);
@@ -86,4 +119,20 @@ public class WebSocketSupportPlugin implements FlutterPlugin {
     // log clean-up success
     Log.i(TAG, "WebSocketSupportPlugin successfully cleaned up.");
   }
+
+  private static boolean isBackgroundDispatchEnabled(Context context) {
+    final PackageManager packageManager = context != null ? context.getPackageManager() : null;
+    if (packageManager == null) {
+      return false;
+    }
+    try {
+      final ApplicationInfo applicationInfo = packageManager
+          .getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
+      return applicationInfo.metaData != null
+          && applicationInfo.metaData.getBoolean(META_DATA_BACKGROUND_DISPATCH, false);
+    } catch (NameNotFoundException e) {
+      Log.w(TAG, "Unable to read application meta-data.");
+      return false;
+    }
+  }
 }
@@ -0,0 +1,127 @@
+package tech.sharpbitstudio.web_socket_support.capture;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * Appends every inbound frame to a capture file which can be fed back with
+ * {@link ReplayWebSocket}. Frames are handed over by reader thread and written by a single
+ * background writer, so capturing never blocks on disk. Writer flushes once its backlog is empty,
+ * bursts are written with few system calls.
+ * <p>
+ * Existing capture file is appended to, so captures of consecutive connects end up in one file.
+ * Writer should be shared by all captures: capture opened after another one is closed then
+ * writes only after the previous one is flushed.
+ * <p>
+ * File: {int MAGIC} followed by records {byte type, long nanosSinceStart, int length, payload}.
+ * Timestamps of appended capture start from zero again.
+ */
+public class FrameCapture implements Closeable {
+
+  static final int MAGIC = 0x57534331; // "WSC1"
+  static final byte TYPE_TEXT = 1;
+  static final byte TYPE_BINARY = 2;
+
+  private static final String TAG = "FrameCapture";
+
+  private final File file;
+  private final BufferedSink sink;
+  private final Executor writer;
+  private final AtomicInteger backlog = new AtomicInteger();
+  private final long startNanos = System.nanoTime();
+
+  /**
+   * Opens capture file for appending.
+   *
+   * @param writer single thread executor which writes the file
+   * @throws IOException if file can't be opened
+   */
+  public FrameCapture(@NonNull File file, @NonNull Executor writer) throws IOException {
+    this.file = file;
+    this.sink = Okio.buffer(Okio.appendingSink(file));
+    this.writer = writer;
+    backlog.incrementAndGet();
+    try {
+      writer.execute(this::writeHeader);
+    } catch (RejectedExecutionException e) {
+      sink.close();
+      throw new IOException("Capture writer is shut down.", e);
+    }
+  }
+
+  /**
+   * Captures text or binary frame. Called on reader thread.
+   *
+   * @param frame String or ByteString frame
+   */
+  public void capture(@NonNull Object frame) {
+    final long timestamp = System.nanoTime() - startNanos;
+    backlog.incrementAndGet();
+    try {
+      writer.execute(() -> write(frame, timestamp));
+    } catch (RejectedExecutionException e) {
+      // capture closed while frame was received
+      backlog.decrementAndGet();
+    }
+  }
+
+  /**
+   * Closes capture file once writer has written frames still waiting in backlog. Returns
+   * immediately.
+   */
+  @Override
+  public void close() {
+    try {
+      writer.execute(() -> {
+        try {
+          sink.close();
+        } catch (IOException e) {
+          Log.w(TAG, "Unable to close capture file. Error:" + e.getMessage());
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Capture writer is shut down. File:" + file);
+    }
+  }
+
+  /// PRIVATE
+
+  private void writeHeader() {
+    try {
+      // previous capture of the file is already flushed, see class description
+      if (file.length() == 0) {
+        sink.writeInt(MAGIC);
+      }
+      if (backlog.decrementAndGet() == 0) {
+        sink.flush();
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Unable to write capture header. Error:" + e.getMessage());
+    }
+  }
+
+  private void write(Object frame, long timestamp) {
+    try {
+      final boolean text = frame instanceof String;
+      final ByteString payload = text ? ByteString.encodeUtf8((String) frame) : (ByteString) frame;
+      sink.writeByte(text ? TYPE_TEXT : TYPE_BINARY)
+          .writeLong(timestamp)
+          .writeInt(payload.size())
+          .write(payload);
+      if (backlog.decrementAndGet() == 0) {
+        sink.flush();
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Unable to write captured frame. Error:" + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package tech.sharpbitstudio.web_socket_support.capture;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Web socket without network which feeds frames of a {@link FrameCapture} file to listener. Frames
+ * are delivered on replay thread, like OkHttp delivers them on its reader thread, so the whole
+ * inbound pipeline is exercised. Outgoing frames are discarded.
+ * <p>
+ * Frames keep their captured spacing divided by {@code speed}; speed 0 (or less) replays as fast
+ * as listener accepts frames. Captures appended to the same file are replayed one after another.
+ * Listener gets onOpen first and onClosed once file is replayed or socket is closed; cancel and
+ * read errors are reported with onFailure.
+ */
+public class ReplayWebSocket implements WebSocket {
+
+  private static final String TAG = "ReplayWebSocket";
+
+  private final Request request;
+  private final File file;
+  private final double speed;
+  private final WebSocketListener listener;
+  private final Thread thread;
+
+  private volatile boolean closed;
+  private volatile boolean canceled;
+  private volatile int closeCode = 1000;
+  private volatile String closeReason = "Replay finished.";
+
+  public ReplayWebSocket(@NonNull Request request, @NonNull File file, double speed,
+      @NonNull WebSocketListener listener) {
+    this.request = request;
+    this.file = file;
+    this.speed = speed;
+    this.listener = listener;
+    this.thread = new Thread(this::replay, "ws-replay");
+  }
+
+  /**
+   * Starts replay thread.
+   */
+  public void start() {
+    thread.start();
+  }
+
+  @NotNull
+  @Override
+  public Request request() {
+    return request;
+  }
+
+  @Override
+  public long queueSize() {
+    return 0;
+  }
+
+  @Override
+  public boolean send(@NotNull String text) {
+    return !closed;
+  }
+
+  @Override
+  public boolean send(@NotNull ByteString bytes) {
+    return !closed;
+  }
+
+  @Override
+  public boolean close(int code, String reason) {
+    if (closed) {
+      return false;
+    }
+    closeCode = code;
+    closeReason = reason != null ? reason : "";
+    closed = true;
+    thread.interrupt();
+    return true;
+  }
+
+  @Override
+  public void cancel() {
+    canceled = true;
+    closed = true;
+    thread.interrupt();
+  }
+
+  /// PRIVATE
+
+  private void replay() {
+    try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+      if (source.readInt() != FrameCapture.MAGIC) {
+        throw new IOException("Not a capture file: " + file);
+      }
+      listener.onOpen(this, new Response.Builder().request(request).protocol(Protocol.HTTP_1_1)
+          .code(101).message("Replay").build());
+      final long startNanos = System.nanoTime();
+      // timestamps of appended capture start from zero, they continue after the previous capture
+      long timestampOffset = 0;
+      long lastTimestamp = 0;
+      while (!closed && !source.exhausted()) {
+        final byte type = source.readByte();
+        final long captured = source.readLong();
+        final ByteString payload = source.readByteString(source.readInt());
+        if (captured + timestampOffset < lastTimestamp) {
+          timestampOffset = lastTimestamp - captured;
+        }
+        final long timestamp = captured + timestampOffset;
+        lastTimestamp = timestamp;
+        if (speed > 0) {
+          final long waitNanos = startNanos + (long) (timestamp / speed) - System.nanoTime();
+          if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+          }
+        }
+        if (type == FrameCapture.TYPE_TEXT) {
+          listener.onMessage(this, payload.utf8());
+        } else {
+          listener.onMessage(this, payload);
+        }
+      }
+    } catch (InterruptedException e) {
+      // closed or canceled while waiting for next frame
+    } catch (EOFException e) {
+      Log.w(TAG, "Capture file ends with incomplete frame. File:" + file);
+    } catch (IOException e) {
+      if (!canceled) {
+        closed = true;
+        listener.onFailure(this, e, null);
+        return;
+      }
+    }
+    closed = true;
+    if (canceled) {
+      listener.onFailure(this, new IOException("Canceled"), null);
+    } else {
+      listener.onClosed(this, closeCode, closeReason);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Pool of direct ByteBuffers with power of two capacities. Pool keeps at most
+ * {@code maxPooledBytes} of released buffers, larger surplus is left to GC. Not thread safe.
+ */
+public class ByteBufferPool {
+
+  private static final int MIN_CAPACITY_SHIFT = 10; // 1 KiB
+  private static final int MAX_CAPACITY_SHIFT = 30;
+
+  // free buffers by capacity shift
+  @SuppressWarnings("unchecked")
+  private final ArrayDeque<ByteBuffer>[] buckets = new ArrayDeque[MAX_CAPACITY_SHIFT + 1];
+  private final long maxPooledBytes;
+  private long pooledBytes;
+
+  public ByteBufferPool(long maxPooledBytes) {
+    this.maxPooledBytes = maxPooledBytes;
+  }
+
+  /**
+   * @param size required size
+   * @return cleared direct buffer with capacity of at least {@code size} bytes
+   */
+  public ByteBuffer acquire(int size) {
+    final int shift = capacityShift(size);
+    if (shift > MAX_CAPACITY_SHIFT) {
+      return ByteBuffer.allocateDirect(size);
+    }
+    final ArrayDeque<ByteBuffer> bucket = buckets[shift];
+    if (bucket != null && !bucket.isEmpty()) {
+      final ByteBuffer buffer = bucket.removeFirst();
+      pooledBytes -= buffer.capacity();
+      return buffer;
+    }
+    return ByteBuffer.allocateDirect(1 << shift);
+  }
+
+  /**
+   * Returns buffer to pool. Buffer must not be used by caller afterwards.
+   *
+   * @param buffer buffer obtained from {@link #acquire(int)}
+   */
+  public void release(ByteBuffer buffer) {
+    final int capacity = buffer.capacity();
+    if (Integer.bitCount(capacity) != 1 || pooledBytes + capacity > maxPooledBytes) {
+      return;
+    }
+    final int shift = Integer.numberOfTrailingZeros(capacity);
+    if (buckets[shift] == null) {
+      buckets[shift] = new ArrayDeque<>();
+    }
+    buffer.clear();
+    buckets[shift].addLast(buffer);
+    pooledBytes += capacity;
+  }
+
+  private static int capacityShift(int size) {
+    if (size <= 1 << MIN_CAPACITY_SHIFT) {
+      return MIN_CAPACITY_SHIFT;
+    }
+    return 32 - Integer.numberOfLeadingZeros(size - 1);
+  }
+}
@@ -0,0 +1,53 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import androidx.annotation.NonNull;
+import io.flutter.plugin.common.BinaryMessenger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import okio.ByteString;
+
+/**
+ * Sends binary frames to Flutter as raw direct ByteBuffers over {@link BinaryMessenger}, without
+ * StandardMessageCodec and without intermediate byte[] copy. Frame payload is written once from
+ * ByteString into a pooled buffer, which is reused after messenger copied it.
+ * <p>
+ * Message layout: 4 byte big endian length of UTF-8 connection id, connection id bytes (empty for
+ * default connection) and frame payload. Must be called on main thread.
+ */
+public class DirectBinaryChannel {
+
+  // pooled buffers are kept up to this size in total
+  private static final long MAX_POOLED_BYTES = 8 * 1024 * 1024;
+
+  private final BinaryMessenger binaryMessenger;
+  private final String channelName;
+  private final ByteBufferPool bufferPool = new ByteBufferPool(MAX_POOLED_BYTES);
+
+  public DirectBinaryChannel(@NonNull BinaryMessenger binaryMessenger,
+      @NonNull String channelName) {
+    this.binaryMessenger = binaryMessenger;
+    this.channelName = channelName;
+  }
+
+  /**
+   * Sends frame to Flutter.
+   *
+   * @param connectionId connection id or null for default connection
+   * @param frame        received frame
+   */
+  public void send(String connectionId, @NonNull ByteString frame) {
+    final byte[] id = connectionId != null
+        ? connectionId.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    final ByteBuffer buffer = bufferPool.acquire(4 + id.length + frame.size());
+    try {
+      buffer.putInt(id.length);
+      buffer.put(id);
+      // asByteBuffer wraps frame data without copying it
+      buffer.put(frame.asByteBuffer());
+      binaryMessenger.send(channelName, buffer);
+    } finally {
+      // messenger copies message before send returns
+      bufferPool.release(buffer);
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import okio.ByteString;
+
+/**
+ * Append-only journal of frames sent while web socket is not connected. Frames are replayed in
+ * order once connection is opened, so they survive reconnects and (because journal lives in a file)
+ * process restarts.
+ * <p>
+ * Record: {int payloadLength, byte type, long createdAtMillis, payload}. Records are written with a
+ * single gathering write and are not synced to disk, so they survive process death but may be lost
+ * on power loss. Torn record at the end of journal (process killed while writing) is truncated on
+ * open. Journal is bounded by {@code maxBytes}, frames older than {@code ttlMs} are expired instead
+ * of replayed.
+ * <p>
+ * Replay has two steps, so frames can be read on outbox thread and sent on another one:
+ * {@link #read()} returns journaled frames and {@link #remove(int)} removes frames which were
+ * processed. Frames appended in between stay in journal. All methods must be called on a single
+ * (outbox) thread, journal is never touched on dispatch thread.
+ */
+public class DurableOutbox implements Closeable {
+
+  private static final String TAG = "DurableOutbox";
+  private static final int HEADER_SIZE = 4 + 1 + 8;
+  private static final byte TYPE_TEXT = 1;
+  private static final byte TYPE_BINARY = 2;
+
+  private final File file;
+  private final long maxBytes;
+  private final long ttlMs;
+  private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+  private RandomAccessFile journal;
+  private FileChannel channel;
+  // bytes of valid records in journal
+  private long size;
+  private int pendingFrames;
+
+  /**
+   * Journaled frame.
+   */
+  public static class Record {
+
+    // String or ByteString frame, null if frame expired
+    public final Object frame;
+
+    Record(Object frame) {
+      this.frame = frame;
+    }
+
+    public boolean isExpired() {
+      return frame == null;
+    }
+  }
+
+  /**
+   * Opens (or creates) journal and recovers frames left by previous session.
+   *
+   * @param ttlMs frame expiry, 0 to never expire frames
+   * @throws IOException if journal can't be opened
+   */
+  public DurableOutbox(@NonNull File file, long maxBytes, long ttlMs) throws IOException {
+    this.file = file;
+    this.maxBytes = Math.max(0, maxBytes);
+    this.ttlMs = Math.max(0, ttlMs);
+    open();
+    recover();
+  }
+
+  /**
+   * Appends String or ByteString frame to journal.
+   *
+   * @return false if journal is full or frame can't be written
+   */
+  public boolean append(@NonNull Object frame) {
+    final boolean text = frame instanceof String;
+    final ByteString payload = text ? ByteString.encodeUtf8((String) frame) : (ByteString) frame;
+    final long recordSize = HEADER_SIZE + payload.size();
+    if (size + recordSize > maxBytes) {
+      Log.w(TAG, "Outbox full. Rejecting frame. size:" + payload.size());
+      return false;
+    }
+    header.clear();
+    header.putInt(payload.size()).put(text ? TYPE_TEXT : TYPE_BINARY)
+        .putLong(System.currentTimeMillis());
+    header.flip();
+    final ByteBuffer[] record = {header, payload.asByteBuffer()};
+    try {
+      channel.position(size);
+      long written = 0;
+      while (written < recordSize) {
+        written += channel.write(record);
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Unable to append frame to outbox. Error:" + e.getMessage());
+      truncateQuietly(size);
+      return false;
+    }
+    size += recordSize;
+    pendingFrames++;
+    return true;
+  }
+
+  /**
+   * Reads journaled frames in order. Frames older than ttl are returned as expired records. Frames
+   * stay in journal until they are removed with {@link #remove(int)}.
+   *
+   * @return journaled frames, empty if journal is empty or can't be read
+   */
+  public List<Record> read() {
+    final List<Record> records = new ArrayList<>(pendingFrames);
+    final long now = System.currentTimeMillis();
+    long position = 0;
+    try {
+      while (position < size) {
+        readHeader(position);
+        final int length = header.getInt();
+        final byte type = header.get();
+        final long createdAt = header.getLong();
+        if (ttlMs > 0 && now - createdAt > ttlMs) {
+          records.add(new Record(null));
+        } else {
+          final ByteBuffer payload = ByteBuffer.allocate(length);
+          readFully(payload, position + HEADER_SIZE);
+          final ByteString bytes = ByteString.of(payload.array());
+          records.add(new Record(type == TYPE_TEXT ? bytes.utf8() : bytes));
+        }
+        position += HEADER_SIZE + length;
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Unable to read outbox. Error:" + e.getMessage());
+      records.clear();
+    }
+    return records;
+  }
+
+  /**
+   * Removes first frames of journal, after they were sent or expired.
+   *
+   * @param frames number of frames to remove
+   */
+  public void remove(int frames) {
+    long position = 0;
+    int removed = 0;
+    try {
+      while (removed < frames && position < size) {
+        readHeader(position);
+        position += HEADER_SIZE + header.getInt();
+        removed++;
+      }
+      compact(position);
+      pendingFrames -= removed;
+    } catch (IOException e) {
+      Log.e(TAG, "Unable to remove frames from outbox. Error:" + e.getMessage());
+    }
+  }
+
+  /**
+   * @return frames waiting in journal
+   */
+  public int getPendingFrames() {
+    return pendingFrames;
+  }
+
+  @Override
+  public void close() {
+    try {
+      journal.close();
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to close outbox. Error:" + e.getMessage());
+    }
+  }
+
+  /// PRIVATE
+
+  private void open() throws IOException {
+    journal = new RandomAccessFile(file, "rw");
+    channel = journal.getChannel();
+  }
+
+  private void recover() throws IOException {
+    final long fileSize = channel.size();
+    long position = 0;
+    while (position + HEADER_SIZE <= fileSize) {
+      readHeader(position);
+      final int length = header.getInt();
+      final byte type = header.get();
+      if (length < 0 || (type != TYPE_TEXT && type != TYPE_BINARY)
+          || position + HEADER_SIZE + length > fileSize) {
+        break;
+      }
+      position += HEADER_SIZE + length;
+      pendingFrames++;
+    }
+    if (position < fileSize) {
+      Log.w(TAG, "Dropping torn outbox tail. bytes:" + (fileSize - position));
+      channel.truncate(position);
+    }
+    size = position;
+  }
+
+  /**
+   * Removes records before given position. Remaining records are copied to a new journal which
+   * replaces the old one atomically, so a crash never leaves a half compacted journal.
+   */
+  private void compact(long position) throws IOException {
+    if (position == 0) {
+      return;
+    }
+    if (position == size) {
+      channel.truncate(0);
+      size = 0;
+      return;
+    }
+    final File compacted = new File(file.getPath() + ".tmp");
+    try (RandomAccessFile target = new RandomAccessFile(compacted, "rw")) {
+      target.setLength(0);
+      final FileChannel targetChannel = target.getChannel();
+      long copied = 0;
+      while (copied < size - position) {
+        copied += channel.transferTo(position + copied, size - position - copied,
+            targetChannel);
+      }
+    }
+    journal.close();
+    if (!compacted.renameTo(file)) {
+      open();
+      throw new IOException("Unable to replace outbox journal: " + file);
+    }
+    open();
+    size -= position;
+  }
+
+  private void readHeader(long position) throws IOException {
+    header.clear();
+    readFully(header, position);
+    header.flip();
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of outbox journal: " + file);
+      }
+    }
+  }
+
+  private void truncateQuietly(long position) {
+    try {
+      channel.truncate(position);
+    } catch (IOException e) {
+      Log.w(TAG, "Unable to truncate outbox. Error:" + e.getMessage());
+    }
+  }
+}
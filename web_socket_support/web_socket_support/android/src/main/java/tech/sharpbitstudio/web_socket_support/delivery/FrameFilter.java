@@ -0,0 +1,129 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import okio.ByteString;
+
+/**
+ * Subscription filter evaluated on the OkHttp reader thread, so frames nobody is interested in are
+ * dropped before they are posted, encoded and sent to Flutter. Rules are identified by id and can
+ * be added and removed at any time.
+ * <p>
+ * Frame passes if any rule of its kind (text or binary) matches it. Frames of a kind without any
+ * rule always pass.
+ */
+public class FrameFilter {
+
+  public interface TextRule {
+
+    boolean matches(@NonNull String frame);
+  }
+
+  public interface BinaryRule {
+
+    boolean matches(@NonNull ByteString frame);
+  }
+
+  private static final TextRule[] NO_TEXT_RULES = new TextRule[0];
+  private static final BinaryRule[] NO_BINARY_RULES = new BinaryRule[0];
+
+  // guarded by this, copied to arrays read by reader thread on every change
+  private final Map<String, Object> rules = new LinkedHashMap<>();
+  private volatile TextRule[] textRules = NO_TEXT_RULES;
+  private volatile BinaryRule[] binaryRules = NO_BINARY_RULES;
+
+  /**
+   * @return rule passing text frames starting with given prefix
+   */
+  public static TextRule textPrefix(@NonNull String prefix) {
+    return frame -> frame.startsWith(prefix);
+  }
+
+  /**
+   * @return rule passing text frames which are JSON objects with given value at given field path
+   */
+  public static TextRule jsonValue(@NonNull String keyPath, @NonNull String value) {
+    final JsonKeyExtractor extractor = new JsonKeyExtractor(keyPath);
+    return frame -> value.equals(extractor.apply(frame));
+  }
+
+  /**
+   * @return rule passing binary frames containing given bytes at given offset
+   */
+  public static BinaryRule binaryMatch(int offset, @NonNull ByteString bytes) {
+    return frame -> frame.rangeEquals(offset, bytes, 0, bytes.size());
+  }
+
+  /**
+   * Adds rule or replaces rule with the same id.
+   *
+   * @param id   rule id
+   * @param rule {@link TextRule} or {@link BinaryRule}
+   */
+  public synchronized void put(@NonNull String id, @NonNull Object rule) {
+    if (!(rule instanceof TextRule) && !(rule instanceof BinaryRule)) {
+      throw new IllegalArgumentException("Unsupported rule: " + rule);
+    }
+    rules.put(id, rule);
+    publish();
+  }
+
+  /**
+   * @return true if rule existed
+   */
+  public synchronized boolean remove(@NonNull String id) {
+    final boolean removed = rules.remove(id) != null;
+    publish();
+    return removed;
+  }
+
+  public synchronized void clear() {
+    rules.clear();
+    publish();
+  }
+
+  public boolean accepts(@NonNull String frame) {
+    final TextRule[] current = textRules;
+    if (current.length == 0) {
+      return true;
+    }
+    for (TextRule rule : current) {
+      if (rule.matches(frame)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean accepts(@NonNull ByteString frame) {
+    final BinaryRule[] current = binaryRules;
+    if (current.length == 0) {
+      return true;
+    }
+    for (BinaryRule rule : current) {
+      if (rule.matches(frame)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /// PRIVATE
+
+  private void publish() {
+    final List<TextRule> text = new ArrayList<>();
+    final List<BinaryRule> binary = new ArrayList<>();
+    for (Object rule : rules.values()) {
+      if (rule instanceof TextRule) {
+        text.add((TextRule) rule);
+      } else {
+        binary.add((BinaryRule) rule);
+      }
+    }
+    textRules = text.toArray(NO_TEXT_RULES);
+    binaryRules = binary.toArray(NO_BINARY_RULES);
+  }
+}
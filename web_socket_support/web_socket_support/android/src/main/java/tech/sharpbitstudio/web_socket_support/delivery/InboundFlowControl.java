@@ -0,0 +1,190 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import android.os.Handler;
+import androidx.annotation.NonNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Demand driven inbound delivery, similar to reactive streams {@code request(n)}. Flutter grants
+ * credits and only that many frames are released to the handler thread; other frames wait in a
+ * bounded buffer. When the buffer is full, {@link OverflowPolicy} decides what happens with the
+ * new frame.
+ * <p>
+ * Frames are added on the OkHttp reader thread, credits are granted on the handler thread. Frames
+ * are released in the order they were received.
+ */
+public class InboundFlowControl {
+
+  public enum OverflowPolicy {
+    // block OkHttp reader thread until there is space, server is slowed down by TCP flow control
+    BLOCK_READER,
+    // drop oldest buffered frame
+    DROP_OLDEST,
+    // drop new frame
+    DROP_NEWEST,
+    // fail the connection
+    FAIL;
+
+    public static OverflowPolicy fromOption(Object value) {
+      if ("blockReader".equals(value)) {
+        return BLOCK_READER;
+      } else if ("dropNewest".equals(value)) {
+        return DROP_NEWEST;
+      } else if ("fail".equals(value)) {
+        return FAIL;
+      }
+      return DROP_OLDEST;
+    }
+  }
+
+  private final Handler handler;
+  private final int maxBufferedFrames;
+  private final OverflowPolicy overflowPolicy;
+  private final Consumer<Object> releaseConsumer;
+  private final Runnable overflowListener;
+
+  // guarded by this
+  private final ArrayDeque<Object> buffered = new ArrayDeque<>();
+  private long credits;
+  private long droppedFrames;
+  private boolean overflowReported;
+  private boolean failed;
+  // changes when blocked reader must give up (connection closed or buffer cleared)
+  private int generation;
+
+  /**
+   * @param releaseConsumer  called on handler thread with every released frame
+   * @param overflowListener posted to handler when frames start to be dropped, once until next
+   *                         credit grant
+   */
+  public InboundFlowControl(@NonNull Handler handler, int maxBufferedFrames,
+      @NonNull OverflowPolicy overflowPolicy, long initialCredits,
+      @NonNull Consumer<Object> releaseConsumer, @NonNull Runnable overflowListener) {
+    this.handler = handler;
+    this.maxBufferedFrames = Math.max(1, maxBufferedFrames);
+    this.overflowPolicy = overflowPolicy;
+    this.credits = Math.max(0, initialCredits);
+    this.releaseConsumer = releaseConsumer;
+    this.overflowListener = overflowListener;
+  }
+
+  /**
+   * Releases frame if there is credit, otherwise buffers it. May block calling thread if overflow
+   * policy is {@link OverflowPolicy#BLOCK_READER}.
+   *
+   * @param frame String or ByteString frame
+   * @return false if connection should be failed because buffer overflowed
+   */
+  public boolean add(@NonNull Object frame) {
+    synchronized (this) {
+      final int addedInGeneration = generation;
+      while (true) {
+        if (failed || addedInGeneration != generation) {
+          return true;
+        }
+        if (credits > 0 && buffered.isEmpty()) {
+          credits--;
+          break;
+        }
+        if (buffered.size() < maxBufferedFrames) {
+          buffered.addLast(frame);
+          return true;
+        }
+        switch (overflowPolicy) {
+          case BLOCK_READER:
+            try {
+              wait();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              onDropped();
+              return true;
+            }
+            continue;
+          case DROP_OLDEST:
+            buffered.removeFirst();
+            buffered.addLast(frame);
+            onDropped();
+            return true;
+          case DROP_NEWEST:
+            onDropped();
+            return true;
+          default:
+            failed = true;
+            buffered.clear();
+            return false;
+        }
+      }
+    }
+    handler.post(() -> releaseConsumer.accept(frame));
+    return true;
+  }
+
+  /**
+   * Grants credits and releases buffered frames up to the outstanding credit. Must be called on
+   * handler thread.
+   *
+   * @param count number of frames Flutter is ready to receive
+   */
+  public void request(long count) {
+    final List<Object> released = new ArrayList<>();
+    synchronized (this) {
+      final long granted = Math.max(0, count);
+      credits = granted >= Long.MAX_VALUE - credits ? Long.MAX_VALUE : credits + granted;
+      while (credits > 0 && !buffered.isEmpty()) {
+        released.add(buffered.removeFirst());
+        credits--;
+      }
+      overflowReported = false;
+      notifyAll();
+    }
+    if (!released.isEmpty()) {
+      // posted, so frames released directly by reader thread before are delivered first
+      handler.post(() -> {
+        for (Object frame : released) {
+          releaseConsumer.accept(frame);
+        }
+      });
+    }
+  }
+
+  public synchronized int getBufferedFrames() {
+    return buffered.size();
+  }
+
+  public synchronized long getDroppedFrames() {
+    return droppedFrames;
+  }
+
+  /**
+   * Unblocks reader of closed connection. Buffered frames are kept until requested.
+   */
+  public synchronized void onDisconnected() {
+    failed = false;
+    generation++;
+    notifyAll();
+  }
+
+  /**
+   * Drops buffered frames and unblocks reader. Credits are kept.
+   */
+  public synchronized void clear() {
+    buffered.clear();
+    failed = false;
+    generation++;
+    notifyAll();
+  }
+
+  /// PRIVATE
+
+  // guarded by this
+  private void onDropped() {
+    droppedFrames++;
+    if (!overflowReported) {
+      overflowReported = true;
+      handler.post(overflowListener);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import androidx.annotation.NonNull;
+import java.util.function.Function;
+
+/**
+ * Extracts conflation key from JSON text frame by dot separated field path (e.g. "data.symbol").
+ * Frame is scanned only up to the requested field, nothing is parsed into objects. String values
+ * are returned without quotes (escapes are kept as is), other values as raw JSON text.
+ * <p>
+ * Returns null if frame is not a JSON object or the field is missing.
+ */
+public class JsonKeyExtractor implements Function<String, Object> {
+
+  private final String[] path;
+
+  public JsonKeyExtractor(@NonNull String path) {
+    this.path = path.split("\\.");
+  }
+
+  @Override
+  public Object apply(String json) {
+    try {
+      return extract(json);
+    } catch (IndexOutOfBoundsException e) {
+      // truncated or malformed JSON
+      return null;
+    }
+  }
+
+  /// PRIVATE
+
+  private String extract(String json) {
+    int pos = 0;
+    for (String name : path) {
+      pos = skipWhitespace(json, pos);
+      if (json.charAt(pos) != '{') {
+        return null;
+      }
+      pos = findMember(json, pos + 1, name);
+      if (pos < 0) {
+        return null;
+      }
+    }
+    final int end = skipValue(json, pos);
+    return json.charAt(pos) == '"' ? json.substring(pos + 1, end - 1) : json.substring(pos, end);
+  }
+
+  /**
+   * @param pos position just after opening brace of an object
+   * @return position of member value or -1 if object has no such member
+   */
+  private static int findMember(String json, int pos, String name) {
+    while (true) {
+      pos = skipWhitespace(json, pos);
+      final char c = json.charAt(pos);
+      if (c == ',') {
+        pos++;
+        continue;
+      }
+      if (c != '"') {
+        // end of object or malformed JSON
+        return -1;
+      }
+      final int keyEnd = skipString(json, pos);
+      final boolean match = keyEnd - pos - 2 == name.length()
+          && json.regionMatches(pos + 1, name, 0, name.length());
+      pos = skipWhitespace(json, keyEnd);
+      if (json.charAt(pos) != ':') {
+        return -1;
+      }
+      pos = skipWhitespace(json, pos + 1);
+      if (match) {
+        return pos;
+      }
+      pos = skipValue(json, pos);
+    }
+  }
+
+  private static int skipValue(String json, int pos) {
+    char c = json.charAt(pos);
+    if (c == '"') {
+      return skipString(json, pos);
+    }
+    if (c == '{' || c == '[') {
+      int depth = 0;
+      while (true) {
+        c = json.charAt(pos);
+        if (c == '"') {
+          pos = skipString(json, pos);
+          continue;
+        }
+        if (c == '{' || c == '[') {
+          depth++;
+        } else if ((c == '}' || c == ']') && --depth == 0) {
+          return pos + 1;
+        }
+        pos++;
+      }
+    }
+    // number, true, false or null
+    while (pos < json.length() && ",}] \t\r\n".indexOf(json.charAt(pos)) < 0) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * @param pos position of opening quote
+   * @return position just after closing quote
+   */
+  private static int skipString(String json, int pos) {
+    pos++;
+    while (true) {
+      final char c = json.charAt(pos);
+      if (c == '\\') {
+        pos += 2;
+      } else if (c == '"') {
+        return pos + 1;
+      } else {
+        pos++;
+      }
+    }
+  }
+
+  private static int skipWhitespace(String json, int pos) {
+    while (Character.isWhitespace(json.charAt(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+}
@@ -0,0 +1,140 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_CHUNK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_LAST;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_LENGTH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_MESSAGE_ID;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_OFFSET;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_TOTAL_LENGTH;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.ArrayMap;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import okio.ByteString;
+
+/**
+ * Delivers binary frames above threshold without materializing the whole frame as another
+ * {@code byte[]}. Frame is either split into fixed size chunks, each copied only when it is
+ * delivered, or written to a temporary file straight from frame's buffer and only the file path is
+ * delivered.
+ * <p>
+ * Chunk payload: {messageId, offset, totalLength, last, chunk}. File payload: {path, length}.
+ * Files are created in given directory (app cache directory by default) and are owned by Flutter
+ * side, which must delete them once read.
+ */
+public class LargeBinaryDelivery {
+
+  private static final String TAG = "LargeBinaryDelivery";
+  private static final AtomicLong MESSAGE_IDS = new AtomicLong();
+
+  public enum Mode {
+    CHUNKS,
+    FILE;
+
+    public static Mode fromOption(Object value) {
+      return "file".equals(value) ? FILE : CHUNKS;
+    }
+  }
+
+  private final long threshold;
+  private final Mode mode;
+  private final int chunkSize;
+  private final File directory;
+
+  /**
+   * @param directory directory of temporary files, null for java.io.tmpdir (app cache directory)
+   */
+  public LargeBinaryDelivery(long threshold, @NonNull Mode mode, int chunkSize,
+      @Nullable File directory) {
+    this.threshold = Math.max(1, threshold);
+    this.mode = mode;
+    this.chunkSize = Math.max(1, chunkSize);
+    this.directory = directory;
+  }
+
+  public boolean isLarge(@NonNull ByteString frame) {
+    return frame.size() >= threshold;
+  }
+
+  /**
+   * @return true if large frames are written to files, so {@link #deliver} does disk I/O
+   */
+  public boolean writesFiles() {
+    return mode == Mode.FILE;
+  }
+
+  /**
+   * Delivers large frame. File is written on calling thread, payloads are created and passed to
+   * consumer in tasks run by executor, in order.
+   *
+   * @param frame           received frame
+   * @param executor        runs delivery tasks (e.g. posts them to handler)
+   * @param payloadConsumer consumes chunk or file payloads
+   */
+  public void deliver(@NonNull ByteString frame, @NonNull Executor executor,
+      @NonNull Consumer<Object> payloadConsumer) {
+    if (mode == Mode.FILE) {
+      try {
+        final Map<String, Object> payload = writeToFile(frame);
+        executor.execute(() -> payloadConsumer.accept(payload));
+        return;
+      } catch (IOException e) {
+        Log.e(TAG, "Unable to write message to file. Delivering it in chunks. Error:"
+            + e.getMessage());
+      }
+    }
+    final long messageId = MESSAGE_IDS.incrementAndGet();
+    final ByteBuffer buffer = frame.asByteBuffer();
+    for (int offset = 0; offset < frame.size(); offset += chunkSize) {
+      final int chunkOffset = offset;
+      executor.execute(() -> payloadConsumer.accept(chunk(messageId, buffer, chunkOffset)));
+    }
+  }
+
+  /// PRIVATE
+
+  private Map<String, Object> chunk(long messageId, ByteBuffer buffer, int offset) {
+    final byte[] chunk = new byte[Math.min(chunkSize, buffer.capacity() - offset)];
+    // duplicate, chunks may be created on different threads
+    final ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.get(chunk);
+    final Map<String, Object> payload = new ArrayMap<>(5);
+    payload.put(ARGUMENT_MESSAGE_ID, messageId);
+    payload.put(ARGUMENT_OFFSET, offset);
+    payload.put(ARGUMENT_TOTAL_LENGTH, buffer.capacity());
+    payload.put(ARGUMENT_LAST, offset + chunk.length == buffer.capacity());
+    payload.put(ARGUMENT_CHUNK, chunk);
+    return payload;
+  }
+
+  private Map<String, Object> writeToFile(ByteString frame) throws IOException {
+    final File file = File.createTempFile("ws_message_", ".bin", directory);
+    try (FileOutputStream output = new FileOutputStream(file)) {
+      final FileChannel channel = output.getChannel();
+      final ByteBuffer buffer = frame.asByteBuffer();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+      throw e;
+    }
+    final Map<String, Object> payload = new ArrayMap<>(2);
+    payload.put(ARGUMENT_PATH, file.getAbsolutePath());
+    payload.put(ARGUMENT_LENGTH, frame.size());
+    return payload;
+  }
+}
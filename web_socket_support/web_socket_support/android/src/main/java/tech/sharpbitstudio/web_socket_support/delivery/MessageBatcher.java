@@ -0,0 +1,83 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import android.os.Handler;
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects inbound frames on the OkHttp reader thread and hands them over to the handler thread as
+ * one list. A batch is flushed when it reaches {@code maxSize} frames or when {@code windowMs}
+ * milliseconds passed since the first frame of the batch was added, whichever comes first.
+ *
+ * @param <T> frame type
+ */
+public class MessageBatcher<T> {
+
+  private final Handler handler;
+  private final int maxSize;
+  private final long windowMs;
+  private final Consumer<List<T>> flushConsumer;
+  private final Runnable windowFlush = this::flush;
+
+  // guarded by this
+  private List<T> pending;
+
+  public MessageBatcher(@NonNull Handler handler, int maxSize, long windowMs,
+      @NonNull Consumer<List<T>> flushConsumer) {
+    this.handler = handler;
+    this.maxSize = Math.max(1, maxSize);
+    this.windowMs = Math.max(1, windowMs);
+    this.flushConsumer = flushConsumer;
+  }
+
+  /**
+   * Adds frame to current batch. Can be called from any thread.
+   *
+   * @param frame received frame
+   */
+  public void add(@NonNull T frame) {
+    final List<T> full;
+    synchronized (this) {
+      if (pending == null) {
+        pending = new ArrayList<>(maxSize);
+        handler.postDelayed(windowFlush, windowMs);
+      }
+      pending.add(frame);
+      if (pending.size() < maxSize) {
+        return;
+      }
+      full = pending;
+      pending = null;
+    }
+    handler.removeCallbacks(windowFlush);
+    handler.post(() -> flushConsumer.accept(full));
+  }
+
+  /**
+   * Delivers pending frames (if any) to flush consumer and cancels scheduled flush. Must be called
+   * on handler thread.
+   */
+  public void flush() {
+    final List<T> batch;
+    synchronized (this) {
+      batch = pending;
+      pending = null;
+    }
+    if (batch != null) {
+      handler.removeCallbacks(windowFlush);
+      flushConsumer.accept(batch);
+    }
+  }
+
+  /**
+   * Drops pending frames and cancels scheduled flush.
+   */
+  public void clear() {
+    synchronized (this) {
+      pending = null;
+    }
+    handler.removeCallbacks(windowFlush);
+  }
+}
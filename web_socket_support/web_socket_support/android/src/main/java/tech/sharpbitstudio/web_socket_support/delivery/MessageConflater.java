@@ -0,0 +1,99 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import android.os.Handler;
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps only the newest inbound frame per key until pending frames are handed over to the handler
+ * thread. Frames are added on the OkHttp reader thread and a single drain is scheduled on the
+ * handler; while the handler is busy, newer frames replace older ones with the same key, so memory
+ * and delivery latency stay bounded by number of keys instead of server publish rate. Handler
+ * should be the one delivering frames to Flutter (main thread), that is where delivery stalls.
+ * <p>
+ * Frames without key (extractor returns null) are never conflated. Drained frames keep order in
+ * which their keys were first seen.
+ *
+ * @param <T> frame type
+ */
+public class MessageConflater<T> {
+
+  private final Handler handler;
+  private final Function<T, Object> keyExtractor;
+  private final Consumer<List<T>> drainConsumer;
+  private final Runnable drainTask = this::drain;
+
+  // guarded by this
+  private LinkedHashMap<Object, T> pending;
+
+  public MessageConflater(@NonNull Handler handler, @NonNull Function<T, Object> keyExtractor,
+      @NonNull Consumer<List<T>> drainConsumer) {
+    this.handler = handler;
+    this.keyExtractor = keyExtractor;
+    this.drainConsumer = drainConsumer;
+  }
+
+  /**
+   * Adds frame to pending frames. Can be called from any thread.
+   *
+   * @param frame received frame
+   * @return true if frame replaced older pending frame with the same key
+   */
+  public boolean add(@NonNull T frame) {
+    Object key = keyExtractor.apply(frame);
+    if (key == null) {
+      // unique key, frame is always delivered
+      key = new Object();
+    }
+    synchronized (this) {
+      if (pending == null) {
+        pending = new LinkedHashMap<>();
+        handler.post(drainTask);
+      }
+      return pending.put(key, frame) != null;
+    }
+  }
+
+  /**
+   * Delivers pending frames (if any) to drain consumer. Must be called on handler thread.
+   */
+  public void drain() {
+    final LinkedHashMap<Object, T> frames;
+    synchronized (this) {
+      frames = pending;
+      pending = null;
+    }
+    if (frames != null) {
+      drainConsumer.accept(new ArrayList<>(frames.values()));
+    }
+  }
+
+  /**
+   * Hands pending frames over to handler right away, e.g. before connection is closed. Frames are
+   * delivered before tasks posted to handler later. Can be called from any thread.
+   */
+  public void flush() {
+    final LinkedHashMap<Object, T> frames;
+    synchronized (this) {
+      frames = pending;
+      pending = null;
+    }
+    if (frames != null) {
+      handler.post(() -> drainConsumer.accept(new ArrayList<>(frames.values())));
+    }
+  }
+
+  /**
+   * Drops pending frames and cancels scheduled drain.
+   */
+  public void clear() {
+    synchronized (this) {
+      pending = null;
+    }
+    handler.removeCallbacks(drainTask);
+  }
+}
@@ -0,0 +1,247 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import android.os.Handler;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+import okhttp3.WebSocket;
+import okio.ByteString;
+import okio.Utf8;
+
+/**
+ * Keeps outgoing frames in the plugin while OkHttp's own outgoing buffer is above high watermark,
+ * instead of letting OkHttp close the socket when its 16 MiB buffer overflows. Queued frames are
+ * written to the socket as OkHttp buffer drains.
+ * <p>
+ * Writability listener is called with {@code false} when frames start to be queued and with
+ * {@code true} once bytes queued (plugin + OkHttp) drop to low watermark. If plugin queue would
+ * grow above {@code maxQueuedBytes}, frames are rejected or dropped according to
+ * {@link DropPolicy}; dropped new frame is reported as rejected, dropped queued frames are reported
+ * to {@link DropListener}. Frames larger than {@link #MAX_FRAME_BYTES} are always rejected, OkHttp
+ * would close the socket for them, and high watermark is capped at the same size. All methods must
+ * be called on handler thread.
+ */
+public class OutboundQueue {
+
+  /**
+   * Size of OkHttp outgoing buffer, larger frame can never be written.
+   */
+  public static final long MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+  private static final String TAG = "OutboundQueue";
+  private static final long DRAIN_INTERVAL_MS = 50;
+
+  /**
+   * Notified when queued frame is dropped to make room for a new one.
+   */
+  public interface DropListener {
+
+    /**
+     * @param position bytes accepted before dropped frame, earlier dropped frames excluded
+     * @param size     size of dropped frame
+     */
+    void onDropped(long position, long size);
+  }
+
+  public enum DropPolicy {
+    // reject new frame, send fails
+    NONE,
+    // drop oldest queued frames to make room for new frame
+    DROP_OLDEST,
+    // drop new frame, send fails
+    DROP_NEWEST;
+
+    public static DropPolicy fromOption(Object value) {
+      if ("dropOldest".equals(value)) {
+        return DROP_OLDEST;
+      } else if ("dropNewest".equals(value)) {
+        return DROP_NEWEST;
+      }
+      return NONE;
+    }
+  }
+
+  private final Handler handler;
+  private final long highWatermark;
+  private final long lowWatermark;
+  private final long maxQueuedBytes;
+  private final DropPolicy dropPolicy;
+  private final Consumer<Boolean> writabilityListener;
+  private final DropListener dropListener;
+  private final Runnable drainTask = this::drain;
+
+  // String or ByteString frames
+  private final ArrayDeque<Object> pending = new ArrayDeque<>();
+  private long pendingBytes;
+  // bytes of frames accepted since queue was created, dropped frames excluded
+  private long bytesAccepted;
+  // bytes of frames written to OkHttp since queue was created
+  private long bytesWritten;
+  private boolean writable = true;
+  private WebSocket webSocket;
+
+  public OutboundQueue(@NonNull Handler handler, long highWatermark, long lowWatermark,
+      long maxQueuedBytes, @NonNull DropPolicy dropPolicy,
+      @NonNull Consumer<Boolean> writabilityListener, @NonNull DropListener dropListener) {
+    this.handler = handler;
+    this.highWatermark = Math.max(1, Math.min(highWatermark, MAX_FRAME_BYTES));
+    this.lowWatermark = Math.max(0, Math.min(lowWatermark, this.highWatermark));
+    this.maxQueuedBytes = Math.max(0, maxQueuedBytes);
+    this.dropPolicy = dropPolicy;
+    this.writabilityListener = writabilityListener;
+    this.dropListener = dropListener;
+  }
+
+  /**
+   * Writes frame to web socket or queues it if OkHttp buffer is above high watermark.
+   *
+   * @param webSocket connected web socket
+   * @param frame     String or ByteString frame
+   * @param size      frame size, UTF-8 size of String frame
+   * @return false if frame was rejected or dropped (by web socket, because queue is full or frame
+   *     is too large)
+   */
+  public boolean send(@NonNull WebSocket webSocket, @NonNull Object frame, long size) {
+    if (this.webSocket != webSocket) {
+      // new connection, frames queued for previous one are gone
+      clear();
+      this.webSocket = webSocket;
+    }
+
+    if (size > MAX_FRAME_BYTES) {
+      Log.w(TAG, "Frame larger than " + MAX_FRAME_BYTES + " bytes. Rejecting it. size:" + size);
+      return false;
+    }
+    if (pending.isEmpty() && canWrite(size)) {
+      if (!write(frame)) {
+        return false;
+      }
+      bytesAccepted += size;
+      bytesWritten += size;
+      return true;
+    }
+
+    // queue frame
+    if (pendingBytes + size > maxQueuedBytes) {
+      switch (dropPolicy) {
+        case DROP_NEWEST:
+          Log.w(TAG, "Send queue full. Dropping newest frame. size:" + size);
+          return false;
+        case DROP_OLDEST:
+          while (!pending.isEmpty() && pendingBytes + size > maxQueuedBytes) {
+            // oldest queued frame is the next one to be written
+            final long droppedSize = sizeOf(pending.removeFirst());
+            pendingBytes -= droppedSize;
+            bytesAccepted -= droppedSize;
+            dropListener.onDropped(bytesWritten, droppedSize);
+          }
+          if (pendingBytes + size > maxQueuedBytes) {
+            Log.w(TAG, "Frame larger than send queue. Dropping it. size:" + size);
+            return false;
+          }
+          Log.w(TAG, "Send queue full. Oldest frames dropped.");
+          break;
+        default:
+          Log.w(TAG, "Send queue full. Rejecting frame. size:" + size);
+          return false;
+      }
+    }
+    pending.addLast(frame);
+    pendingBytes += size;
+    bytesAccepted += size;
+    setWritable(false);
+    scheduleDrain();
+    return true;
+  }
+
+  /**
+   * @return number of frames waiting in plugin queue
+   */
+  public int queueSize() {
+    return pending.size();
+  }
+
+  /**
+   * @return bytes waiting in plugin queue and in OkHttp outgoing buffer
+   */
+  public long bytesQueued() {
+    return pendingBytes + (webSocket != null ? webSocket.queueSize() : 0);
+  }
+
+  /**
+   * @return count of bytes accepted for sending, in the same units as {@link #bytesQueued()}.
+   *     Dropped frames are subtracted, so frames keep their position in the written stream
+   */
+  public long bytesAccepted() {
+    return bytesAccepted;
+  }
+
+  /**
+   * @return monotonic count of bytes written to OkHttp and already sent by it
+   */
+  public long bytesSent() {
+    return bytesWritten - (webSocket != null ? webSocket.queueSize() : 0);
+  }
+
+  /**
+   * Drops queued frames and stops draining. Writability is reset without notifying listener.
+   */
+  public void clear() {
+    handler.removeCallbacks(drainTask);
+    pending.clear();
+    pendingBytes = 0;
+    writable = true;
+    webSocket = null;
+  }
+
+  /// PRIVATE
+
+  private void drain() {
+    while (!pending.isEmpty() && canWrite(sizeOf(pending.peekFirst()))) {
+      final Object frame = pending.removeFirst();
+      final long size = sizeOf(frame);
+      pendingBytes -= size;
+      bytesWritten += size;
+      if (!write(frame)) {
+        // web socket is closing, remaining frames can't be sent
+        Log.w(TAG, "Unable to write queued frame. Dropping " + pending.size() + " frames.");
+        clear();
+        return;
+      }
+    }
+    if (bytesQueued() <= lowWatermark) {
+      setWritable(true);
+    }
+    if (!pending.isEmpty() || !writable) {
+      scheduleDrain();
+    }
+  }
+
+  private boolean canWrite(long size) {
+    final long okHttpQueued = webSocket.queueSize();
+    // frame larger than high watermark is written once OkHttp buffer is empty
+    return okHttpQueued == 0 || okHttpQueued + size <= highWatermark;
+  }
+
+  private boolean write(Object frame) {
+    return frame instanceof String
+        ? webSocket.send((String) frame) : webSocket.send((ByteString) frame);
+  }
+
+  private void scheduleDrain() {
+    handler.removeCallbacks(drainTask);
+    handler.postDelayed(drainTask, DRAIN_INTERVAL_MS);
+  }
+
+  private void setWritable(boolean writable) {
+    if (this.writable != writable) {
+      this.writable = writable;
+      writabilityListener.accept(writable);
+    }
+  }
+
+  private static long sizeOf(Object frame) {
+    return frame instanceof String ? Utf8.size((String) frame) : ((ByteString) frame).size();
+  }
+}
@@ -0,0 +1,129 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import android.os.Handler;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Reports how much of large outgoing frames was already written to the socket. OkHttp does not
+ * report write progress, so progress is derived from position of the frame in the stream of
+ * accepted frames and bytes already sent: frames are sent in FIFO order, so once everything
+ * accepted before the frame is sent, every further sent byte belongs to the frame until it is
+ * sent. Frames dropped by {@link OutboundQueue} are removed from the stream, dropped tracked frame
+ * is not reported anymore.
+ * <p>
+ * Progress is polled every {@link #POLL_INTERVAL_MS} while there are tracked frames. All methods
+ * must be called on handler thread.
+ */
+public class SendProgressTracker {
+
+  static final long POLL_INTERVAL_MS = 50;
+
+  private static final String TAG = "SendProgressTracker";
+
+  public interface ProgressListener {
+
+    void onProgress(long sendId, long bytesSent, long totalBytes);
+  }
+
+  private static class Transfer {
+
+    final long sendId;
+    final long size;
+    long position;
+    long reported = -1;
+
+    Transfer(long sendId, long size, long position) {
+      this.sendId = sendId;
+      this.size = size;
+      this.position = position;
+    }
+  }
+
+  private final Handler handler;
+  private final LongSupplier bytesAccepted;
+  private final LongSupplier bytesSent;
+  private final ProgressListener listener;
+  private final Runnable pollTask = this::poll;
+  private final List<Transfer> transfers = new ArrayList<>();
+
+  /**
+   * @param bytesAccepted bytes accepted for sending, dropped frames excluded
+   * @param bytesSent     monotonic count of bytes sent to socket
+   */
+  public SendProgressTracker(@NonNull Handler handler, @NonNull LongSupplier bytesAccepted,
+      @NonNull LongSupplier bytesSent, @NonNull ProgressListener listener) {
+    this.handler = handler;
+    this.bytesAccepted = bytesAccepted;
+    this.bytesSent = bytesSent;
+    this.listener = listener;
+  }
+
+  /**
+   * Starts tracking frame which was just accepted for sending.
+   *
+   * @param sendId id reported with progress
+   * @param size   frame size
+   */
+  public void track(long sendId, long size) {
+    transfers.add(new Transfer(sendId, size, bytesAccepted.getAsLong() - size));
+    if (transfers.size() == 1) {
+      handler.postDelayed(pollTask, POLL_INTERVAL_MS);
+    }
+  }
+
+  /**
+   * Removes dropped frame from the stream, see {@link OutboundQueue.DropListener}.
+   *
+   * @param position bytes accepted before dropped frame, earlier dropped frames excluded
+   * @param size     size of dropped frame
+   */
+  public void onDropped(long position, long size) {
+    final Iterator<Transfer> iterator = transfers.iterator();
+    while (iterator.hasNext()) {
+      final Transfer transfer = iterator.next();
+      if (transfer.position == position && transfer.size == size) {
+        Log.w(TAG, "Tracked frame dropped. sendId:" + transfer.sendId);
+        iterator.remove();
+      } else if (transfer.position > position) {
+        transfer.position -= size;
+      }
+    }
+    if (transfers.isEmpty()) {
+      handler.removeCallbacks(pollTask);
+    }
+  }
+
+  /**
+   * Stops tracking all frames, their progress is not reported anymore.
+   */
+  public void clear() {
+    transfers.clear();
+    handler.removeCallbacks(pollTask);
+  }
+
+  /// PRIVATE
+
+  private void poll() {
+    final long sentTotal = bytesSent.getAsLong();
+    final Iterator<Transfer> iterator = transfers.iterator();
+    while (iterator.hasNext()) {
+      final Transfer transfer = iterator.next();
+      final long sent = Math.max(0, Math.min(transfer.size, sentTotal - transfer.position));
+      if (sent != transfer.reported) {
+        transfer.reported = sent;
+        listener.onProgress(transfer.sendId, sent, transfer.size);
+      }
+      if (sent == transfer.size) {
+        iterator.remove();
+      }
+    }
+    if (!transfers.isEmpty()) {
+      handler.postDelayed(pollTask, POLL_INTERVAL_MS);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package tech.sharpbitstudio.web_socket_support.delivery;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import okio.ByteString;
+
+/**
+ * Tracks sequence numbers of inbound frames so connection can be resumed after the last delivered
+ * frame. Sequence is read from JSON text frames by dot separated field path (see
+ * {@link JsonKeyExtractor}) and from binary frames as big-endian long at given offset. Frames
+ * without sequence are not tracked.
+ * <p>
+ * Received frame with sequence above last received + 1 is reported as gap, frame with sequence at
+ * or below it is reported as duplicate and should be dropped. Listener is called on reader thread.
+ * <p>
+ * Resume point only moves when frame is delivered, so frames still waiting in a buffer when
+ * connection is lost are asked for again. Frames which were delivered meanwhile are dropped by
+ * {@link #deliver(long)}.
+ */
+public class SequenceTracker {
+
+  public static final long NONE = -1;
+
+  public interface Listener {
+
+    void onGap(long expectedSequence, long receivedSequence);
+
+    void onDuplicate(long lastSequence, long receivedSequence);
+  }
+
+  private final JsonKeyExtractor textExtractor;
+  private final int binaryOffset;
+  private final Listener listener;
+
+  // last received, written on reader thread
+  private volatile long lastSequence = NONE;
+  // last delivered, connection is resumed after it
+  private volatile long resumeSequence = NONE;
+
+  /**
+   * @param keyPath      JSON path of sequence in text frames, null to not track text frames
+   * @param binaryOffset offset of sequence in binary frames, negative to not track binary frames
+   */
+  public SequenceTracker(@Nullable String keyPath, int binaryOffset, @NonNull Listener listener) {
+    this.textExtractor = keyPath != null ? new JsonKeyExtractor(keyPath) : null;
+    this.binaryOffset = binaryOffset;
+    this.listener = listener;
+  }
+
+  /**
+   * @param frame String or ByteString frame
+   * @return sequence of frame or {@link #NONE} if frame has no sequence
+   */
+  public long sequenceOf(@NonNull Object frame) {
+    return frame instanceof String
+        ? textSequence((String) frame) : binarySequence((ByteString) frame);
+  }
+
+  /**
+   * Tracks sequence of received frame. Called on reader thread.
+   *
+   * @param sequence sequence of frame, see {@link #sequenceOf(Object)}
+   * @return false if frame is a duplicate
+   */
+  public boolean track(long sequence) {
+    if (sequence < 0) {
+      return true;
+    }
+    final long last = lastSequence;
+    if (last != NONE && sequence <= last) {
+      listener.onDuplicate(last, sequence);
+      return false;
+    }
+    if (last != NONE && sequence > last + 1) {
+      listener.onGap(last + 1, sequence);
+    }
+    lastSequence = sequence;
+    return true;
+  }
+
+  /**
+   * Moves resume point to delivered frame.
+   *
+   * @param sequence sequence of frame, see {@link #sequenceOf(Object)}
+   * @return false if frame with this sequence was already delivered and must be dropped
+   */
+  public boolean deliver(long sequence) {
+    if (sequence < 0) {
+      return true;
+    }
+    if (resumeSequence != NONE && sequence <= resumeSequence) {
+      return false;
+    }
+    resumeSequence = sequence;
+    return true;
+  }
+
+  /**
+   * Prepares tracking for a new connection which resumes after last delivered frame, so frames sent
+   * again by server are not taken for duplicates. Called before connection is opened.
+   *
+   * @return sequence of last delivered frame or {@link #NONE}
+   */
+  public long resume() {
+    lastSequence = resumeSequence;
+    return resumeSequence;
+  }
+
+  /**
+   * @return sequence of last delivered frame or {@link #NONE}
+   */
+  public long getResumeSequence() {
+    return resumeSequence;
+  }
+
+  /// PRIVATE
+
+  private long textSequence(String frame) {
+    if (textExtractor == null) {
+      return NONE;
+    }
+    final Object value = textExtractor.apply(frame);
+    if (value == null) {
+      return NONE;
+    }
+    try {
+      return Long.parseLong((String) value);
+    } catch (NumberFormatException e) {
+      return NONE;
+    }
+  }
+
+  private long binarySequence(ByteString frame) {
+    if (binaryOffset < 0 || frame.size() < binaryOffset + 8) {
+      return NONE;
+    }
+    long sequence = 0;
+    for (int i = 0; i < 8; i++) {
+      sequence = (sequence << 8) | (frame.getByte(binaryOffset + i) & 0xff);
+    }
+    return sequence;
+  }
+}
@@ -0,0 +1,94 @@
+package tech.sharpbitstudio.web_socket_support.domain;
+
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_COMPRESSION_MIN_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_PING_INTERVAL_SEC;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CALL_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_COMPRESSION;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_COMPRESSION_MIN_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CONNECT_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_PING_INTERVAL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_READ_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RETRY_ON_CONNECTION_FAILURE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_WRITE_TIMEOUT_MS;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Connect options which affect OkHttpClient, parsed and validated once per connect. Instances are
+ * used as keys of derived client cache, so options handled per connection (autoReconnect,
+ * batching...) are not part of this class.
+ * <p>
+ * Timeouts are in milliseconds, 0 means no timeout and {@link #INHERIT} keeps value of the shared
+ * client. Read and call timeouts apply to the handshake only, OkHttp clears them once the
+ * connection is upgraded to web socket.
+ */
+@Value
+@Builder
+public class ClientOptions {
+
+  public static final long INHERIT = -1;
+
+  long pingIntervalSec;
+  boolean compression;
+  long compressionMinSize;
+  long connectTimeoutMs;
+  long readTimeoutMs;
+  long writeTimeoutMs;
+  long callTimeoutMs;
+  // null keeps value of the shared client
+  Boolean retryOnConnectionFailure;
+
+  /**
+   * Parses client options. Invalid values are replaced with defaults and reported.
+   *
+   * @param options  connect options, may be null
+   * @param problems list invalid values are reported to
+   * @return parsed options
+   */
+  public static ClientOptions fromOptions(Map<String, Object> options, List<String> problems) {
+    final Map<String, Object> values = options != null ? options : Collections.emptyMap();
+    final Object retry = values.get(OPTION_RETRY_ON_CONNECTION_FAILURE);
+    return ClientOptions.builder()
+        // 0 disables pings
+        .pingIntervalSec(longOption(values, OPTION_PING_INTERVAL, 0, problems,
+            DEFAULT_PING_INTERVAL_SEC))
+        .compression(!Boolean.FALSE.equals(values.get(OPTION_COMPRESSION)))
+        // 0 compresses every frame
+        .compressionMinSize(longOption(values, OPTION_COMPRESSION_MIN_SIZE, 0, problems,
+            DEFAULT_COMPRESSION_MIN_SIZE))
+        .connectTimeoutMs(timeoutOption(values, OPTION_CONNECT_TIMEOUT_MS, problems))
+        .readTimeoutMs(timeoutOption(values, OPTION_READ_TIMEOUT_MS, problems))
+        .writeTimeoutMs(timeoutOption(values, OPTION_WRITE_TIMEOUT_MS, problems))
+        .callTimeoutMs(timeoutOption(values, OPTION_CALL_TIMEOUT_MS, problems))
+        .retryOnConnectionFailure(retry instanceof Boolean ? (Boolean) retry : null)
+        .build();
+  }
+
+  private static long timeoutOption(Map<String, Object> options, String key,
+      List<String> problems) {
+    return longOption(options, key, 0, problems, INHERIT);
+  }
+
+  /**
+   * @param min          minimal valid value
+   * @param defaultValue value used when option is missing or invalid
+   */
+  private static long longOption(Map<String, Object> options, String key, long min,
+      List<String> problems, long defaultValue) {
+    final Object value = options.get(key);
+    if (!(value instanceof Number)) {
+      // missing, wrong types are reported by OptionsValidator
+      return defaultValue;
+    }
+    final long result = ((Number) value).longValue();
+    if (result < min) {
+      problems.add("Option " + key + " must be >= " + min + ", got " + result);
+      return defaultValue;
+    }
+    return result;
+  }
+}
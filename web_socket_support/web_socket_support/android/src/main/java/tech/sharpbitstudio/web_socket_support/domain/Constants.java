@@ -9,16 +9,134 @@ public class Constants {
   public static final String IN_METHOD_NAME_DISCONNECT = "disconnect";
   public static final String IN_METHOD_NAME_SEND_TEXT_MSG = "sendTextMessage";
   public static final String IN_METHOD_NAME_SEND_BYTE_MSG = "sendByteMessage";
+  public static final String IN_METHOD_NAME_SEND_TEXT_MSGS = "sendTextMessages";
+  public static final String IN_METHOD_NAME_SEND_BYTE_MSGS = "sendByteMessages";
+  public static final String IN_METHOD_NAME_SEND_FILE = "sendFile";
+  public static final String IN_METHOD_NAME_QUEUE_SIZE = "queueSize";
+  public static final String IN_METHOD_NAME_GET_STATS = "getStats";
+  public static final String IN_METHOD_NAME_GET_LATENCY = "getLatency";
+  public static final String IN_METHOD_NAME_REQUEST_MESSAGES = "requestMessages";
+  public static final String IN_METHOD_NAME_ADD_FILTER = "addFilter";
+  public static final String IN_METHOD_NAME_REMOVE_FILTER = "removeFilter";
+  public static final String IN_METHOD_NAME_CLEAR_FILTERS = "clearFilters";
+  public static final String IN_METHOD_NAME_REQUEST = "request";
+  public static final String IN_METHOD_NAME_PREWARM = "prewarm";
+  public static final String IN_METHOD_NAME_PING = "ping";
 
   // outgoing methods
   public static final String OUT_METHOD_NAME_ON_TEXT_MSG = "onTextMessage";
   public static final String OUT_METHOD_NAME_ON_BYTE_MSG = "onByteMessage";
 
   // method arguments
+  public static final String ARGUMENT_CONNECTION_ID = "connectionId";
   public static final String ARGUMENT_CODE = "code";
   public static final String ARGUMENT_REASON = "reason";
   public static final String ARGUMENT_URL = "serverUrl";
   public static final String ARGUMENT_OPTIONS = "options";
   public static final String ARGUMENT_TEXT_MESSAGE = "textMessage";
   public static final String ARGUMENT_BYTE_MESSAGE = "byteMessage";
+  public static final String ARGUMENT_TEXT_MESSAGES = "textMessages";
+  public static final String ARGUMENT_BYTE_MESSAGES = "byteMessages";
+  public static final String ARGUMENT_MESSAGE = "message";
+  public static final String ARGUMENT_QUEUE_SIZE = "queueSize";
+  public static final String ARGUMENT_BYTES_QUEUED = "bytesQueued";
+  public static final String ARGUMENT_CREDITS = "credits";
+  public static final String ARGUMENT_BUFFERED_FRAMES = "bufferedFrames";
+  public static final String ARGUMENT_DROPPED_FRAMES = "droppedFrames";
+  public static final String ARGUMENT_FILTER_ID = "filterId";
+  public static final String ARGUMENT_FILTER_TYPE = "type";
+  public static final String ARGUMENT_PREFIX = "prefix";
+  public static final String ARGUMENT_OFFSET = "offset";
+  public static final String ARGUMENT_BYTES = "bytes";
+  public static final String ARGUMENT_KEY_PATH = "keyPath";
+  public static final String ARGUMENT_VALUE = "value";
+  public static final String ARGUMENT_MESSAGE_ID = "messageId";
+  public static final String ARGUMENT_TOTAL_LENGTH = "totalLength";
+  public static final String ARGUMENT_LAST = "last";
+  public static final String ARGUMENT_CHUNK = "chunk";
+  public static final String ARGUMENT_PATH = "path";
+  public static final String ARGUMENT_LENGTH = "length";
+  public static final String ARGUMENT_ID_FIELD = "idField";
+  public static final String ARGUMENT_TIMEOUT_MS = "timeoutMs";
+  public static final String ARGUMENT_OPEN_MS = "openMs";
+
+  // filter types
+  public static final String FILTER_TYPE_PREFIX = "prefix";
+  public static final String FILTER_TYPE_BYTES = "bytes";
+  public static final String FILTER_TYPE_JSON = "json";
+
+  // connection used when connectionId argument is omitted
+  public static final String DEFAULT_CONNECTION_ID = "default";
+
+  // connect options
+  public static final String OPTION_AUTO_RECONNECT = "autoReconnect";
+  public static final String OPTION_LOG_LEVEL = "logLevel";
+  public static final String OPTION_STATS_INTERVAL_MS = "statsIntervalMs";
+  public static final String OPTION_HEADERS = "headers";
+  public static final String OPTION_PING_INTERVAL = "pingInterval";
+  public static final String OPTION_COMPRESSION = "compression";
+  public static final String OPTION_COMPRESSION_MIN_SIZE = "compressionMinSize";
+  public static final String OPTION_CONNECT_TIMEOUT_MS = "connectTimeoutMs";
+  public static final String OPTION_READ_TIMEOUT_MS = "readTimeoutMs";
+  public static final String OPTION_WRITE_TIMEOUT_MS = "writeTimeoutMs";
+  public static final String OPTION_CALL_TIMEOUT_MS = "callTimeoutMs";
+  public static final String OPTION_RETRY_ON_CONNECTION_FAILURE = "retryOnConnectionFailure";
+  public static final String OPTION_RECONNECT_BASE_DELAY_MS = "reconnectBaseDelayMs";
+  public static final String OPTION_RECONNECT_MAX_DELAY_MS = "reconnectMaxDelayMs";
+  public static final String OPTION_RECONNECT_MAX_ATTEMPTS = "reconnectMaxAttempts";
+  public static final String OPTION_RECONNECT_WAIT_FOR_NETWORK = "reconnectWaitForNetwork";
+  public static final String OPTION_SEND_HIGH_WATERMARK = "sendHighWatermark";
+  public static final String OPTION_SEND_LOW_WATERMARK = "sendLowWatermark";
+  public static final String OPTION_SEND_QUEUE_MAX_BYTES = "sendQueueMaxBytes";
+  public static final String OPTION_SEND_DROP_POLICY = "sendDropPolicy";
+  public static final String OPTION_BATCH_MESSAGES = "batchMessages";
+  public static final String OPTION_DIRECT_BINARY = "directBinary";
+  public static final String OPTION_BATCH_MAX_SIZE = "batchMaxSize";
+  public static final String OPTION_BATCH_WINDOW_MS = "batchWindowMs";
+  public static final String OPTION_CONFLATE_KEY_PATH = "conflateKeyPath";
+  public static final String OPTION_CONFLATE_KEY_PREFIX_BYTES = "conflateKeyPrefixBytes";
+  public static final String OPTION_LARGE_BINARY_THRESHOLD = "largeBinaryThreshold";
+  public static final String OPTION_LARGE_BINARY_MODE = "largeBinaryMode";
+  public static final String OPTION_LARGE_BINARY_CHUNK_SIZE = "largeBinaryChunkSize";
+  public static final String OPTION_LARGE_BINARY_DIRECTORY = "largeBinaryDirectory";
+  public static final String OPTION_FLOW_CONTROL = "flowControl";
+  public static final String OPTION_INBOUND_INITIAL_CREDITS = "inboundInitialCredits";
+  public static final String OPTION_INBOUND_BUFFER_MAX_FRAMES = "inboundBufferMaxFrames";
+  public static final String OPTION_INBOUND_OVERFLOW_POLICY = "inboundOverflowPolicy";
+  public static final String OPTION_OUTBOX_PATH = "outboxPath";
+  public static final String OPTION_OUTBOX_MAX_BYTES = "outboxMaxBytes";
+  public static final String OPTION_OUTBOX_TTL_MS = "outboxTtlMs";
+  public static final String OPTION_CAPTURE_PATH = "capturePath";
+  public static final String OPTION_REPLAY_PATH = "replayPath";
+  public static final String OPTION_REPLAY_SPEED = "replaySpeed";
+  public static final String OPTION_RESUME_SEQ_KEY_PATH = "resumeSeqKeyPath";
+  public static final String OPTION_RESUME_SEQ_BINARY_OFFSET = "resumeSeqBinaryOffset";
+  public static final String OPTION_RESUME_QUERY_PARAM = "resumeQueryParam";
+  public static final String OPTION_RESUME_FRAME = "resumeFrame";
+  public static final String OPTION_PING_FRAME = "pingFrame";
+  public static final String OPTION_PING_ID_FIELD = "pingIdField";
+
+  // placeholder of last sequence in resume frame
+  public static final String RESUME_SEQ_PLACEHOLDER = "{seq}";
+  // placeholder of ping id in ping frame
+  public static final String PING_ID_PLACEHOLDER = "{id}";
+
+  // option defaults
+  public static final int DEFAULT_BATCH_MAX_SIZE = 64;
+  public static final int DEFAULT_PING_INTERVAL_SEC = 30;
+  // same as OkHttp default
+  public static final long DEFAULT_COMPRESSION_MIN_SIZE = 1024;
+  public static final int DEFAULT_BATCH_WINDOW_MS = 8;
+  public static final long DEFAULT_RECONNECT_BASE_DELAY_MS = 1000;
+  public static final long DEFAULT_RECONNECT_MAX_DELAY_MS = 30000;
+  public static final int DEFAULT_RECONNECT_MAX_ATTEMPTS = 10;
+  // OkHttp closes socket when its outgoing buffer exceeds 16 MiB
+  public static final int DEFAULT_SEND_HIGH_WATERMARK = 4 * 1024 * 1024;
+  public static final int DEFAULT_SEND_LOW_WATERMARK = 1024 * 1024;
+  public static final int DEFAULT_SEND_QUEUE_MAX_BYTES = 8 * 1024 * 1024;
+  public static final int DEFAULT_INBOUND_BUFFER_MAX_FRAMES = 1024;
+  public static final int DEFAULT_LARGE_BINARY_CHUNK_SIZE = 1024 * 1024;
+  public static final int DEFAULT_OUTBOX_MAX_BYTES = 4 * 1024 * 1024;
+  public static final String DEFAULT_REQUEST_ID_FIELD = "id";
+  public static final long DEFAULT_REQUEST_TIMEOUT_MS = 30000;
 }
@@ -0,0 +1,142 @@
+package tech.sharpbitstudio.web_socket_support.domain;
+
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_AUTO_RECONNECT;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_BATCH_MAX_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_BATCH_MESSAGES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_BATCH_WINDOW_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CALL_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CAPTURE_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_COMPRESSION;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_COMPRESSION_MIN_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CONFLATE_KEY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CONFLATE_KEY_PREFIX_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CONNECT_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_DIRECT_BINARY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_FLOW_CONTROL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_HEADERS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_INBOUND_BUFFER_MAX_FRAMES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_INBOUND_INITIAL_CREDITS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_INBOUND_OVERFLOW_POLICY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_CHUNK_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_DIRECTORY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_MODE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_THRESHOLD;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LOG_LEVEL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_OUTBOX_MAX_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_OUTBOX_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_OUTBOX_TTL_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_PING_FRAME;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_PING_ID_FIELD;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_PING_INTERVAL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_READ_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_BASE_DELAY_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_MAX_ATTEMPTS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_MAX_DELAY_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_WAIT_FOR_NETWORK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_REPLAY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_REPLAY_SPEED;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_FRAME;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_QUERY_PARAM;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_SEQ_BINARY_OFFSET;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_SEQ_KEY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RETRY_ON_CONNECTION_FAILURE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_DROP_POLICY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_HIGH_WATERMARK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_LOW_WATERMARK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_QUEUE_MAX_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_STATS_INTERVAL_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_WRITE_TIMEOUT_MS;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import tech.sharpbitstudio.web_socket_support.delivery.OutboundQueue;
+
+/**
+ * Checks connect options for unknown keys, values of unexpected type and values above their upper
+ * limit. Other range checks are done where options are parsed.
+ */
+public class OptionsValidator {
+
+  private static final Map<String, Class<?>> OPTION_TYPES = new HashMap<>();
+  // options which are capped where they are parsed
+  private static final Map<String, Long> OPTION_MAX_VALUES = new HashMap<>();
+
+  static {
+    OPTION_TYPES.put(OPTION_AUTO_RECONNECT, Boolean.class);
+    OPTION_TYPES.put(OPTION_HEADERS, Map.class);
+    OPTION_TYPES.put(OPTION_LOG_LEVEL, String.class);
+    OPTION_TYPES.put(OPTION_STATS_INTERVAL_MS, Number.class);
+    OPTION_TYPES.put(OPTION_PING_INTERVAL, Number.class);
+    OPTION_TYPES.put(OPTION_COMPRESSION, Boolean.class);
+    OPTION_TYPES.put(OPTION_COMPRESSION_MIN_SIZE, Number.class);
+    OPTION_TYPES.put(OPTION_CONNECT_TIMEOUT_MS, Number.class);
+    OPTION_TYPES.put(OPTION_READ_TIMEOUT_MS, Number.class);
+    OPTION_TYPES.put(OPTION_WRITE_TIMEOUT_MS, Number.class);
+    OPTION_TYPES.put(OPTION_CALL_TIMEOUT_MS, Number.class);
+    OPTION_TYPES.put(OPTION_RETRY_ON_CONNECTION_FAILURE, Boolean.class);
+    OPTION_TYPES.put(OPTION_RECONNECT_BASE_DELAY_MS, Number.class);
+    OPTION_TYPES.put(OPTION_RECONNECT_MAX_DELAY_MS, Number.class);
+    OPTION_TYPES.put(OPTION_RECONNECT_MAX_ATTEMPTS, Number.class);
+    OPTION_TYPES.put(OPTION_RECONNECT_WAIT_FOR_NETWORK, Boolean.class);
+    OPTION_TYPES.put(OPTION_SEND_HIGH_WATERMARK, Number.class);
+    OPTION_TYPES.put(OPTION_SEND_LOW_WATERMARK, Number.class);
+    OPTION_TYPES.put(OPTION_SEND_QUEUE_MAX_BYTES, Number.class);
+    OPTION_TYPES.put(OPTION_SEND_DROP_POLICY, String.class);
+    OPTION_TYPES.put(OPTION_BATCH_MESSAGES, Boolean.class);
+    OPTION_TYPES.put(OPTION_DIRECT_BINARY, Boolean.class);
+    OPTION_TYPES.put(OPTION_BATCH_MAX_SIZE, Number.class);
+    OPTION_TYPES.put(OPTION_BATCH_WINDOW_MS, Number.class);
+    OPTION_TYPES.put(OPTION_CONFLATE_KEY_PATH, String.class);
+    OPTION_TYPES.put(OPTION_CONFLATE_KEY_PREFIX_BYTES, Number.class);
+    OPTION_TYPES.put(OPTION_LARGE_BINARY_THRESHOLD, Number.class);
+    OPTION_TYPES.put(OPTION_LARGE_BINARY_MODE, String.class);
+    OPTION_TYPES.put(OPTION_LARGE_BINARY_CHUNK_SIZE, Number.class);
+    OPTION_TYPES.put(OPTION_LARGE_BINARY_DIRECTORY, String.class);
+    OPTION_TYPES.put(OPTION_FLOW_CONTROL, Boolean.class);
+    OPTION_TYPES.put(OPTION_INBOUND_INITIAL_CREDITS, Number.class);
+    OPTION_TYPES.put(OPTION_INBOUND_BUFFER_MAX_FRAMES, Number.class);
+    OPTION_TYPES.put(OPTION_INBOUND_OVERFLOW_POLICY, String.class);
+    OPTION_TYPES.put(OPTION_OUTBOX_PATH, String.class);
+    OPTION_TYPES.put(OPTION_OUTBOX_MAX_BYTES, Number.class);
+    OPTION_TYPES.put(OPTION_OUTBOX_TTL_MS, Number.class);
+    OPTION_TYPES.put(OPTION_CAPTURE_PATH, String.class);
+    OPTION_TYPES.put(OPTION_REPLAY_PATH, String.class);
+    OPTION_TYPES.put(OPTION_REPLAY_SPEED, Number.class);
+    OPTION_TYPES.put(OPTION_RESUME_SEQ_KEY_PATH, String.class);
+    OPTION_TYPES.put(OPTION_RESUME_SEQ_BINARY_OFFSET, Number.class);
+    OPTION_TYPES.put(OPTION_RESUME_QUERY_PARAM, String.class);
+    OPTION_TYPES.put(OPTION_RESUME_FRAME, String.class);
+    OPTION_TYPES.put(OPTION_PING_FRAME, String.class);
+    OPTION_TYPES.put(OPTION_PING_ID_FIELD, String.class);
+
+    OPTION_MAX_VALUES.put(OPTION_SEND_HIGH_WATERMARK, OutboundQueue.MAX_FRAME_BYTES);
+  }
+
+  /**
+   * @param options connect options, may be null
+   * @return list of problems found, empty if options are valid
+   */
+  public static List<String> validate(Map<String, Object> options) {
+    final List<String> problems = new ArrayList<>();
+    if (options == null) {
+      return problems;
+    }
+    for (Entry<String, Object> option : options.entrySet()) {
+      final Class<?> type = OPTION_TYPES.get(option.getKey());
+      if (type == null) {
+        problems.add("Unknown option " + option.getKey());
+      } else if (option.getValue() != null && !type.isInstance(option.getValue())) {
+        problems.add("Option " + option.getKey() + " must be " + type.getSimpleName()
+            + ", got " + option.getValue().getClass().getSimpleName());
+      } else if (option.getValue() != null && OPTION_MAX_VALUES.containsKey(option.getKey())
+          && ((Number) option.getValue()).longValue() > OPTION_MAX_VALUES.get(option.getKey())) {
+        problems.add("Option " + option.getKey() + " must be at most "
+            + OPTION_MAX_VALUES.get(option.getKey()) + ", got " + option.getValue());
+      }
+    }
+    return problems;
+  }
+}
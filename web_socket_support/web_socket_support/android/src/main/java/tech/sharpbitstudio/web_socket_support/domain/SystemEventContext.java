@@ -2,6 +2,7 @@ package tech.sharpbitstudio.web_socket_support.domain;
 
 import androidx.collection.ArrayMap;
 import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 import lombok.Builder;
 import lombok.Value;
@@ -10,14 +11,40 @@ import lombok.Value;
 @Builder
 public class SystemEventContext implements Serializable {
 
+  String connectionId;
+  // negotiated Sec-WebSocket-Extensions (e.g. permessage-deflate parameters)
+  String extensions;
+  // handshake phase timings, protocol and TLS parameters
+  Map<String, Object> handshake;
   int closeCode;
   String closeReason;
   String throwableType;
   String errorMessage;
   String causeMessage;
+  int reconnectAttempt;
+  long reconnectDelayMs;
+  long bytesQueued;
+  Map<String, Object> stats;
+  List<String> problems;
+  Integer bufferedFrames;
+  Long droppedFrames;
+  long sendId;
+  long bytesSent;
+  long totalBytes;
+  Long expectedSequence;
+  Long receivedSequence;
 
   public Map<String, Object> toMap() {
     Map<String, Object> result = new ArrayMap<>();
+    if (connectionId != null) {
+      result.put("connectionId", connectionId);
+    }
+    if (extensions != null) {
+      result.put("extensions", extensions);
+    }
+    if (handshake != null) {
+      result.put("handshake", handshake);
+    }
     if (closeCode > 0) {
       result.put("code", closeCode);
     }
@@ -33,6 +60,36 @@ public class SystemEventContext implements Serializable {
     if (causeMessage != null) {
       result.put("causeMessage", causeMessage);
     }
+    if (reconnectAttempt > 0) {
+      result.put("attempt", reconnectAttempt);
+      result.put("delayMs", reconnectDelayMs);
+    }
+    if (bytesQueued > 0) {
+      result.put("bytesQueued", bytesQueued);
+    }
+    if (stats != null) {
+      result.put("stats", stats);
+    }
+    if (problems != null) {
+      result.put("problems", problems);
+    }
+    if (sendId > 0) {
+      result.put("sendId", sendId);
+      result.put("bytesSent", bytesSent);
+      result.put("totalBytes", totalBytes);
+    }
+    if (expectedSequence != null) {
+      result.put("expectedSequence", expectedSequence);
+    }
+    if (receivedSequence != null) {
+      result.put("receivedSequence", receivedSequence);
+    }
+    if (bufferedFrames != null) {
+      result.put("bufferedFrames", bufferedFrames);
+    }
+    if (droppedFrames != null) {
+      result.put("droppedFrames", droppedFrames);
+    }
     return result;
   }
 }
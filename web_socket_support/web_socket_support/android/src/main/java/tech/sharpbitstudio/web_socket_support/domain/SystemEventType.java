@@ -7,7 +7,17 @@ public enum SystemEventType {
   WS_OPENED("onOpened"),
   WS_CLOSING("onClosing"),
   WS_CLOSED("onClosed"),
-  WS_FAILURE("onFailure");
+  WS_FAILURE("onFailure"),
+  WS_RECONNECTING("onReconnecting"),
+  WS_RECONNECT_FAILED("onReconnectFailed"),
+  WS_WRITABLE("onWritable"),
+  WS_NOT_WRITABLE("onNotWritable"),
+  WS_STATS("onStats"),
+  WS_INVALID_OPTIONS("onInvalidOptions"),
+  WS_INBOUND_OVERFLOW("onInboundOverflow"),
+  WS_SEND_PROGRESS("onSendProgress"),
+  WS_SEQUENCE_GAP("onSequenceGap"),
+  WS_DUPLICATE_FRAME("onDuplicateFrame");
 
   @Getter
   private final String methodName;
@@ -0,0 +1,37 @@
+package tech.sharpbitstudio.web_socket_support.handlers;
+
+import android.os.Handler;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * Result which replies on main thread. Used when method calls are handled on background dispatch
+ * thread, since platform channel replies must be sent from main thread.
+ */
+public class MainThreadResult implements Result {
+
+  private final Result result;
+  private final Handler mainThreadHandler;
+
+  public MainThreadResult(@NonNull Result result, @NonNull Handler mainThreadHandler) {
+    this.result = result;
+    this.mainThreadHandler = mainThreadHandler;
+  }
+
+  @Override
+  public void success(@Nullable Object value) {
+    mainThreadHandler.post(() -> result.success(value));
+  }
+
+  @Override
+  public void error(String errorCode, @Nullable String errorMessage,
+      @Nullable Object errorDetails) {
+    mainThreadHandler.post(() -> result.error(errorCode, errorMessage, errorDetails));
+  }
+
+  @Override
+  public void notImplemented() {
+    mainThreadHandler.post(result::notImplemented);
+  }
+}
@@ -0,0 +1,85 @@
+package tech.sharpbitstudio.web_socket_support.reconnect;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.ConnectivityManager.NetworkCallback;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * {@link NetworkMonitor} backed by {@link ConnectivityManager}. Network callback is registered only
+ * while there are listeners waiting for network.
+ */
+public class ConnectivityNetworkMonitor implements NetworkMonitor {
+
+  private static final String TAG = "NetworkMonitor";
+
+  private final ConnectivityManager connectivityManager;
+  private final Set<Runnable> listeners = new CopyOnWriteArraySet<>();
+  private final NetworkCallback networkCallback = new NetworkCallback() {
+    @Override
+    public void onAvailable(@NonNull Network network) {
+      Log.i(TAG, "Network available.");
+      for (Runnable listener : listeners) {
+        listener.run();
+      }
+    }
+  };
+
+  // guarded by this
+  private boolean callbackRegistered;
+
+  public ConnectivityNetworkMonitor(@NonNull Context context) {
+    this.connectivityManager = (ConnectivityManager) context
+        .getSystemService(Context.CONNECTIVITY_SERVICE);
+  }
+
+  @Override
+  public boolean isNetworkAvailable() {
+    if (connectivityManager == null) {
+      return true;
+    }
+    if (VERSION.SDK_INT >= VERSION_CODES.M) {
+      final NetworkCapabilities capabilities = connectivityManager
+          .getNetworkCapabilities(connectivityManager.getActiveNetwork());
+      return capabilities != null
+          && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+    return isNetworkConnectedLegacy();
+  }
+
+  @Override
+  public synchronized void addListener(@NonNull Runnable onAvailable) {
+    listeners.add(onAvailable);
+    if (!callbackRegistered && connectivityManager != null) {
+      connectivityManager.registerNetworkCallback(new NetworkRequest.Builder()
+          .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET).build(), networkCallback);
+      callbackRegistered = true;
+    }
+  }
+
+  @Override
+  public synchronized void removeListener(@NonNull Runnable onAvailable) {
+    listeners.remove(onAvailable);
+    if (listeners.isEmpty() && callbackRegistered) {
+      connectivityManager.unregisterNetworkCallback(networkCallback);
+      callbackRegistered = false;
+    }
+  }
+
+  /// PRIVATE
+
+  @SuppressWarnings("deprecation")
+  private boolean isNetworkConnectedLegacy() {
+    final NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+    return networkInfo != null && networkInfo.isConnected();
+  }
+}
@@ -0,0 +1,40 @@
+package tech.sharpbitstudio.web_socket_support.reconnect;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Source of device network state used to suspend reconnect attempts while the device is offline.
+ */
+public interface NetworkMonitor {
+
+  /**
+   * Monitor used when network state is unknown. Network is always reported as available.
+   */
+  NetworkMonitor ALWAYS_AVAILABLE = new NetworkMonitor() {
+    @Override
+    public boolean isNetworkAvailable() {
+      return true;
+    }
+
+    @Override
+    public void addListener(@NonNull Runnable onAvailable) {
+      // network never becomes unavailable
+    }
+
+    @Override
+    public void removeListener(@NonNull Runnable onAvailable) {
+      // network never becomes unavailable
+    }
+  };
+
+  boolean isNetworkAvailable();
+
+  /**
+   * Registers listener which is called (on any thread) when network becomes available.
+   *
+   * @param onAvailable listener
+   */
+  void addListener(@NonNull Runnable onAvailable);
+
+  void removeListener(@NonNull Runnable onAvailable);
+}
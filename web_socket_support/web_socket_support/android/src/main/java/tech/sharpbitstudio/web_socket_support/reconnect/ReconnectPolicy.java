@@ -0,0 +1,56 @@
+package tech.sharpbitstudio.web_socket_support.reconnect;
+
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_RECONNECT_BASE_DELAY_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_RECONNECT_MAX_ATTEMPTS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_RECONNECT_MAX_DELAY_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_BASE_DELAY_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_MAX_ATTEMPTS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_MAX_DELAY_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_WAIT_FOR_NETWORK;
+
+import java.util.Map;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Reconnect settings parsed from connect options.
+ */
+@Value
+@Builder
+public class ReconnectPolicy {
+
+  long baseDelayMs;
+  long maxDelayMs;
+  // 0 means unlimited
+  int maxAttempts;
+  boolean waitForNetwork;
+
+  public static ReconnectPolicy fromOptions(Map<String, Object> options) {
+    final long baseDelayMs = Math.max(1,
+        longOption(options, OPTION_RECONNECT_BASE_DELAY_MS, DEFAULT_RECONNECT_BASE_DELAY_MS));
+    return ReconnectPolicy.builder()
+        .baseDelayMs(baseDelayMs)
+        .maxDelayMs(Math.max(baseDelayMs,
+            longOption(options, OPTION_RECONNECT_MAX_DELAY_MS, DEFAULT_RECONNECT_MAX_DELAY_MS)))
+        .maxAttempts((int) Math.max(0,
+            longOption(options, OPTION_RECONNECT_MAX_ATTEMPTS, DEFAULT_RECONNECT_MAX_ATTEMPTS)))
+        .waitForNetwork(!Boolean.FALSE.equals(options.get(OPTION_RECONNECT_WAIT_FOR_NETWORK)))
+        .build();
+  }
+
+  /**
+   * Upper bound of delay before given attempt: {@code min(maxDelay, baseDelay * 2^(attempt - 1))}.
+   *
+   * @param attempt attempt number starting from 1
+   * @return delay ceiling in milliseconds
+   */
+  public long delayCeilingMs(int attempt) {
+    final int shift = Math.min(Math.max(attempt - 1, 0), 30);
+    return Math.min(maxDelayMs, baseDelayMs << shift);
+  }
+
+  private static long longOption(Map<String, Object> options, String key, long defaultValue) {
+    final Object value = options.get(key);
+    return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+  }
+}
@@ -0,0 +1,121 @@
+package tech.sharpbitstudio.web_socket_support.reconnect;
+
+import android.os.Handler;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.Random;
+import lombok.Getter;
+
+/**
+ * Schedules reconnect attempts using exponential backoff with full jitter: delay before attempt
+ * {@code n} is a random value between 0 and {@code min(maxDelay, baseDelay * 2^(n - 1))}. Random
+ * delays spread reconnects of many clients after a server restart instead of hitting the server at
+ * the same moment.
+ * <p>
+ * When policy requires network, an attempt which becomes due while the device is offline is
+ * postponed until network is available again. All methods must be called on handler thread.
+ */
+public class ReconnectScheduler {
+
+  private static final String TAG = "ReconnectScheduler";
+
+  private final Handler handler;
+  private final NetworkMonitor networkMonitor;
+  private final Random random;
+  private final Runnable attemptRunnable = this::runAttempt;
+  private final Runnable networkListener = this::onNetworkAvailable;
+
+  private ReconnectPolicy policy;
+  private Runnable reconnect;
+  @Getter
+  private int attempt;
+  private boolean waitingForNetwork;
+
+  public ReconnectScheduler(@NonNull Handler handler, @NonNull NetworkMonitor networkMonitor,
+      @NonNull Random random) {
+    this.handler = handler;
+    this.networkMonitor = networkMonitor;
+    this.random = random;
+  }
+
+  /**
+   * Cancels pending attempt, resets attempt counter and sets policy for next attempts.
+   *
+   * @param policy reconnect policy
+   */
+  public void reset(@NonNull ReconnectPolicy policy) {
+    cancel();
+    this.policy = policy;
+    this.attempt = 0;
+  }
+
+  /**
+   * Resets attempt counter after successful connect.
+   */
+  public void onConnected() {
+    attempt = 0;
+  }
+
+  /**
+   * Schedules next attempt.
+   *
+   * @param reconnect action executed when attempt is due
+   * @return delay in milliseconds or -1 if all attempts are used
+   */
+  public long schedule(@NonNull Runnable reconnect) {
+    if (policy == null || (policy.getMaxAttempts() > 0 && attempt >= policy.getMaxAttempts())) {
+      return -1;
+    }
+    cancel();
+    attempt++;
+    this.reconnect = reconnect;
+    final long delayMs = (long) (random.nextDouble() * (policy.delayCeilingMs(attempt) + 1));
+    handler.postDelayed(attemptRunnable, delayMs);
+    Log.i(TAG, "Reconnect attempt #" + attempt + " scheduled in " + delayMs + "ms.");
+    return delayMs;
+  }
+
+  /**
+   * Cancels pending attempt (if any).
+   */
+  public void cancel() {
+    handler.removeCallbacks(attemptRunnable);
+    if (waitingForNetwork) {
+      networkMonitor.removeListener(networkListener);
+      waitingForNetwork = false;
+    }
+    reconnect = null;
+  }
+
+  /// PRIVATE
+
+  private void runAttempt() {
+    if (reconnect == null) {
+      return;
+    }
+    if (policy.isWaitForNetwork() && !networkMonitor.isNetworkAvailable()) {
+      Log.i(TAG, "Network unavailable. Reconnect attempt #" + attempt + " postponed.");
+      waitingForNetwork = true;
+      networkMonitor.addListener(networkListener);
+      // network may become available before listener is registered
+      if (networkMonitor.isNetworkAvailable()) {
+        onNetworkAvailable();
+      }
+      return;
+    }
+    final Runnable action = reconnect;
+    reconnect = null;
+    action.run();
+  }
+
+  private void onNetworkAvailable() {
+    // called on connectivity thread
+    handler.post(() -> {
+      if (waitingForNetwork) {
+        networkMonitor.removeListener(networkListener);
+        waitingForNetwork = false;
+        runAttempt();
+      }
+    });
+  }
+}
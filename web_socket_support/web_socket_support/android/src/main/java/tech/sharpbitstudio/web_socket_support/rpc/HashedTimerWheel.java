@@ -0,0 +1,161 @@
+package tech.sharpbitstudio.web_socket_support.rpc;
+
+import android.os.Handler;
+import androidx.annotation.NonNull;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel driving many timeouts with a single handler task. Timeout is put into the
+ * bucket of its deadline tick, so scheduling is O(1) and every tick only looks at one bucket.
+ * Deadlines are rounded up to tick duration. Wheel ticks only while it holds timeouts.
+ * <p>
+ * Buckets are doubly linked lists, so timeout returned by {@link #schedule(Object, long)} is
+ * canceled in O(1) once its item is completed. Expiry listener must not schedule new timeouts. All
+ * methods must be called on handler thread.
+ *
+ * @param <T> type of item
+ */
+public class HashedTimerWheel<T> {
+
+  private static final int WHEEL_SIZE = 512;
+  private static final int MASK = WHEEL_SIZE - 1;
+
+  /**
+   * Handle of scheduled timeout.
+   */
+  public static final class Timeout<T> {
+
+    private final T item;
+    private final long deadlineTick;
+    private Timeout<T> prev;
+    private Timeout<T> next;
+    // bucket holding timeout, -1 once expired or canceled
+    private int bucket;
+
+    private Timeout(T item, long deadlineTick) {
+      this.item = item;
+      this.deadlineTick = deadlineTick;
+      this.bucket = (int) (deadlineTick & MASK);
+    }
+  }
+
+  private final Handler handler;
+  private final long tickNanos;
+  private final Consumer<T> expiryListener;
+  @SuppressWarnings("unchecked")
+  private final Timeout<T>[] buckets = new Timeout[WHEEL_SIZE];
+  private final Runnable tickTask = this::advance;
+
+  private long startNanos;
+  // last processed tick
+  private long tick;
+  private int size;
+
+  public HashedTimerWheel(@NonNull Handler handler, long tickMs,
+      @NonNull Consumer<T> expiryListener) {
+    this.handler = handler;
+    this.tickNanos = Math.max(1, tickMs) * 1_000_000;
+    this.expiryListener = expiryListener;
+  }
+
+  /**
+   * Schedules expiry of item after given delay.
+   *
+   * @return handle which cancels the timeout
+   */
+  @NonNull
+  public Timeout<T> schedule(@NonNull T item, long delayMs) {
+    if (size == 0) {
+      // wheel was idle, restart it
+      startNanos = System.nanoTime();
+      tick = 0;
+      handler.postDelayed(tickTask, tickNanos / 1_000_000);
+    }
+    final long delayTicks = (Math.max(0, delayMs) * 1_000_000 + tickNanos - 1) / tickNanos;
+    final long deadlineTick = Math.max(tick + 1, elapsedTicks() + delayTicks);
+    final Timeout<T> timeout = new Timeout<>(item, deadlineTick);
+    timeout.next = buckets[timeout.bucket];
+    if (timeout.next != null) {
+      timeout.next.prev = timeout;
+    }
+    buckets[timeout.bucket] = timeout;
+    size++;
+    return timeout;
+  }
+
+  /**
+   * Cancels timeout, so its item never expires. Wheel stops ticking once it holds no timeouts.
+   * Canceling expired or already canceled timeout does nothing.
+   */
+  public void cancel(@NonNull Timeout<T> timeout) {
+    if (timeout.bucket < 0) {
+      return;
+    }
+    unlink(timeout);
+    if (size == 0) {
+      handler.removeCallbacks(tickTask);
+    }
+  }
+
+  /**
+   * @return number of scheduled timeouts
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Drops all timeouts without expiring them and stops ticking.
+   */
+  public void clear() {
+    handler.removeCallbacks(tickTask);
+    for (int i = 0; i < WHEEL_SIZE; i++) {
+      for (Timeout<T> timeout = buckets[i]; timeout != null; timeout = timeout.next) {
+        timeout.bucket = -1;
+      }
+      buckets[i] = null;
+    }
+    size = 0;
+  }
+
+  /// PRIVATE
+
+  private void advance() {
+    final long targetTick = elapsedTicks();
+    while (tick < targetTick && size > 0) {
+      tick++;
+      Timeout<T> timeout = buckets[(int) (tick & MASK)];
+      while (timeout != null) {
+        final Timeout<T> next = timeout.next;
+        if (timeout.deadlineTick <= tick) {
+          unlink(timeout);
+          expiryListener.accept(timeout.item);
+        }
+        timeout = next;
+      }
+    }
+    if (size > 0) {
+      final long nextTickNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+      handler.postDelayed(tickTask, Math.max(0, nextTickNanos / 1_000_000));
+    }
+  }
+
+  private void unlink(Timeout<T> timeout) {
+    if (timeout.prev != null) {
+      timeout.prev.next = timeout.next;
+    } else {
+      buckets[timeout.bucket] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.prev = timeout.prev;
+    }
+    timeout.prev = null;
+    timeout.next = null;
+    timeout.bucket = -1;
+    size--;
+  }
+
+  private long elapsedTicks() {
+    return (System.nanoTime() - startNanos) / tickNanos;
+  }
+}
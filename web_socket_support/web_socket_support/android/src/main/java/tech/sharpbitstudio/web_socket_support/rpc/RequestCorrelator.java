@@ -0,0 +1,145 @@
+package tech.sharpbitstudio.web_socket_support.rpc;
+
+import android.os.Handler;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import tech.sharpbitstudio.web_socket_support.delivery.JsonKeyExtractor;
+
+/**
+ * Matches JSON replies to requests by id, so replies complete request's method call result without
+ * going through text message stream. Id is read from request payload and from inbound frames by
+ * dot separated field path (see {@link JsonKeyExtractor}).
+ * <p>
+ * Requests are registered on dispatch thread, replies are matched on reader thread. Pending
+ * requests are kept in a concurrent map and whoever removes the request from it completes the
+ * result, so reply, timeout and close never complete it twice. Timeouts are driven by one
+ * {@link HashedTimerWheel} instead of a timer per request; timeout of completed request is canceled
+ * on dispatch thread.
+ */
+public class RequestCorrelator {
+
+  private static final String TAG = "RequestCorrelator";
+  private static final long TICK_MS = 10;
+
+  private static class PendingRequest {
+
+    final String id;
+    final Result result;
+    HashedTimerWheel.Timeout<PendingRequest> timeout;
+
+    PendingRequest(String id, Result result) {
+      this.id = id;
+      this.result = result;
+    }
+  }
+
+  private final Handler handler;
+  private final Map<String, PendingRequest> pending = new ConcurrentHashMap<>();
+  private final HashedTimerWheel<PendingRequest> timeouts;
+
+  // id field paths of registered requests, replaced on change (read on reader thread)
+  private volatile Map<String, JsonKeyExtractor> extractors = new HashMap<>();
+
+  public RequestCorrelator(@NonNull Handler handler) {
+    this.handler = handler;
+    this.timeouts = new HashedTimerWheel<>(handler, TICK_MS, this::expire);
+  }
+
+  /**
+   * Registers request. Must be called on dispatch thread before request is sent, so reply read on
+   * reader thread right after send finds it; use {@link #cancel(String)} if send fails.
+   *
+   * @param payload   JSON request
+   * @param idField   path of id in request and reply
+   * @param timeoutMs time to wait for reply
+   * @param result    completed with reply text, or with error on timeout or close
+   * @return request id, or null if payload has no id or request with same id is pending
+   */
+  public String register(@NonNull String payload, @NonNull String idField, long timeoutMs,
+      @NonNull Result result) {
+    JsonKeyExtractor extractor = extractors.get(idField);
+    if (extractor == null) {
+      final Map<String, JsonKeyExtractor> updated = new HashMap<>(extractors);
+      extractor = new JsonKeyExtractor(idField);
+      updated.put(idField, extractor);
+      extractors = updated;
+    }
+    final Object id = extractor.apply(payload);
+    if (id == null) {
+      Log.w(TAG, "Request has no id. idField:" + idField);
+      return null;
+    }
+    final PendingRequest request = new PendingRequest((String) id, result);
+    if (pending.putIfAbsent(request.id, request) != null) {
+      Log.w(TAG, "Request with same id is already pending. id:" + id);
+      return null;
+    }
+    request.timeout = timeouts.schedule(request, timeoutMs);
+    return request.id;
+  }
+
+  /**
+   * Removes request which was not sent. Must be called on dispatch thread.
+   */
+  public void cancel(@NonNull String id) {
+    final PendingRequest request = pending.remove(id);
+    if (request != null) {
+      timeouts.cancel(request.timeout);
+    }
+  }
+
+  /**
+   * Completes pending request if frame is its reply. Called on reader thread.
+   *
+   * @param frame received text frame
+   * @return true if frame was a reply and is consumed
+   */
+  public boolean complete(@NonNull String frame) {
+    if (pending.isEmpty()) {
+      return false;
+    }
+    for (JsonKeyExtractor extractor : extractors.values()) {
+      final Object id = extractor.apply(frame);
+      final PendingRequest request = id != null ? pending.remove(id) : null;
+      if (request != null) {
+        handler.post(() -> timeouts.cancel(request.timeout));
+        request.result.success(frame);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Fails all pending requests, e.g. when connection is closed. Must be called on dispatch
+   * thread.
+   */
+  public void failAll(@NonNull String errorCode, @NonNull String errorMessage) {
+    timeouts.clear();
+    for (String id : pending.keySet()) {
+      final PendingRequest request = pending.remove(id);
+      if (request != null) {
+        request.result.error(errorCode, errorMessage, id);
+      }
+    }
+  }
+
+  /**
+   * @return number of requests waiting for reply
+   */
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  /// PRIVATE
+
+  private void expire(PendingRequest request) {
+    if (pending.remove(request.id, request)) {
+      request.result.error("05", "Request timed out.", request.id);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package tech.sharpbitstudio.web_socket_support.stats;
+
+import androidx.collection.ArrayMap;
+import java.util.Map;
+
+/**
+ * Runtime counters of a single connection. Every counter has a single writer thread (noted next to
+ * it), so counters are plain volatile fields and updates never contend. Readers on other threads
+ * may see a snapshot where counters of different threads are slightly out of step.
+ * <p>
+ * Text frames are counted in UTF-8 bytes, the same units as binary frames and send queue.
+ */
+public class ConnectionStats {
+
+  // written on OkHttp reader thread
+  private volatile long textFramesIn;
+  private volatile long textBytesIn;
+  private volatile long binaryFramesIn;
+  private volatile long binaryBytesIn;
+  private volatile long conflatedFrames;
+  private volatile long filteredFrames;
+  private volatile long duplicateFrames;
+  private volatile long connectedAtNanos;
+
+  // written on dispatch thread
+  private volatile long textFramesOut;
+  private volatile long textBytesOut;
+  private volatile long binaryFramesOut;
+  private volatile long binaryBytesOut;
+  private volatile long failedSends;
+  private volatile long reconnectAttempts;
+  private volatile long outboxReplayedFrames;
+  private volatile long outboxExpiredFrames;
+
+  // written on main thread
+  private volatile long fallbackDeliveries;
+
+  public void onTextFrameIn(long bytes) {
+    textFramesIn++;
+    textBytesIn += bytes;
+  }
+
+  public void onBinaryFrameIn(long bytes) {
+    binaryFramesIn++;
+    binaryBytesIn += bytes;
+  }
+
+  public void onConflatedFrame() {
+    conflatedFrames++;
+  }
+
+  public void onFilteredFrame() {
+    filteredFrames++;
+  }
+
+  public void onDuplicateFrame() {
+    duplicateFrames++;
+  }
+
+  public void onTextFrameOut(long bytes) {
+    textFramesOut++;
+    textBytesOut += bytes;
+  }
+
+  public void onBinaryFrameOut(long bytes) {
+    binaryFramesOut++;
+    binaryBytesOut += bytes;
+  }
+
+  public void onFailedSend() {
+    failedSends++;
+  }
+
+  public void onReconnectAttempt() {
+    reconnectAttempts++;
+  }
+
+  public void onOutboxReplay(long replayedFrames, long expiredFrames) {
+    outboxReplayedFrames += replayedFrames;
+    outboxExpiredFrames += expiredFrames;
+  }
+
+  public void onFallbackDelivery() {
+    fallbackDeliveries++;
+  }
+
+  public void onConnected() {
+    connectedAtNanos = System.nanoTime();
+  }
+
+  public void onDisconnected() {
+    connectedAtNanos = 0;
+  }
+
+  /**
+   * @return uptime of current connection in milliseconds, 0 when not connected
+   */
+  public long uptimeMs() {
+    final long connectedAt = connectedAtNanos;
+    return connectedAt != 0 ? (System.nanoTime() - connectedAt) / 1_000_000 : 0;
+  }
+
+  public Map<String, Object> toMap() {
+    final Map<String, Object> result = new ArrayMap<>(21);
+    result.put("textFramesIn", textFramesIn);
+    result.put("textBytesIn", textBytesIn);
+    result.put("binaryFramesIn", binaryFramesIn);
+    result.put("binaryBytesIn", binaryBytesIn);
+    result.put("conflatedFrames", conflatedFrames);
+    result.put("filteredFrames", filteredFrames);
+    result.put("duplicateFrames", duplicateFrames);
+    result.put("textFramesOut", textFramesOut);
+    result.put("textBytesOut", textBytesOut);
+    result.put("binaryFramesOut", binaryFramesOut);
+    result.put("binaryBytesOut", binaryBytesOut);
+    result.put("failedSends", failedSends);
+    result.put("reconnectAttempts", reconnectAttempts);
+    result.put("outboxReplayedFrames", outboxReplayedFrames);
+    result.put("outboxExpiredFrames", outboxExpiredFrames);
+    result.put("fallbackDeliveries", fallbackDeliveries);
+    result.put("uptimeMs", uptimeMs());
+    return result;
+  }
+}
@@ -0,0 +1,183 @@
+package tech.sharpbitstudio.web_socket_support.stats;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.ArrayMap;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Map;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Records phase timestamps of a single OkHttp call, along with negotiated protocol and TLS
+ * parameters. Events are written on the thread executing the call, fields are volatile so timings
+ * can be read from any thread once call is done. Phases which did not happen (e.g. DNS and connect
+ * when pooled connection was reused) are reported as -1.
+ * <p>
+ * Used as call event listener directly, or fed by {@link HandshakeTracer} for web socket calls.
+ */
+public class ConnectionTimings extends EventListener {
+
+  private final long createdAtNanos = System.nanoTime();
+
+  private volatile long callStartNanos;
+  private volatile long dnsStartNanos;
+  private volatile long dnsEndNanos;
+  private volatile long connectStartNanos;
+  private volatile long secureConnectStartNanos;
+  private volatile long secureConnectEndNanos;
+  private volatile long connectEndNanos;
+  private volatile long requestHeadersStartNanos;
+  private volatile long responseHeadersEndNanos;
+  private volatile String protocol;
+  private volatile String tlsVersion;
+  private volatile String cipherSuite;
+
+  @Override
+  public void callStart(@NonNull Call call) {
+    callStartNanos = System.nanoTime();
+  }
+
+  @Override
+  public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+    dnsStartNanos = System.nanoTime();
+  }
+
+  @Override
+  public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+      @NonNull List<InetAddress> inetAddressList) {
+    dnsEndNanos = System.nanoTime();
+  }
+
+  @Override
+  public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+      @NonNull Proxy proxy) {
+    connectStartNanos = System.nanoTime();
+  }
+
+  @Override
+  public void secureConnectStart(@NonNull Call call) {
+    secureConnectStartNanos = System.nanoTime();
+  }
+
+  @Override
+  public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+    secureConnectEndNanos = System.nanoTime();
+  }
+
+  @Override
+  public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+      @NonNull Proxy proxy, @Nullable Protocol protocol) {
+    connectEndNanos = System.nanoTime();
+  }
+
+  @Override
+  public void connectFailed(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+      @NonNull Proxy proxy, @Nullable Protocol protocol, @NonNull IOException ioe) {
+    connectEndNanos = System.nanoTime();
+  }
+
+  @Override
+  public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+    // pooled connection has no connect phase
+    if (connectStartNanos == 0) {
+      connectEndNanos = System.nanoTime();
+    }
+    protocol = connection.protocol().toString();
+    final Handshake handshake = connection.handshake();
+    if (handshake != null) {
+      tlsVersion = handshake.tlsVersion().javaName();
+      cipherSuite = handshake.cipherSuite().javaName();
+    }
+  }
+
+  @Override
+  public void requestHeadersStart(@NonNull Call call) {
+    requestHeadersStartNanos = System.nanoTime();
+  }
+
+  @Override
+  public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+    responseHeadersEndNanos = System.nanoTime();
+  }
+
+  /**
+   * @return true if call reused pooled connection
+   */
+  public boolean isConnectionReused() {
+    return callStartNanos != 0 && connectStartNanos == 0;
+  }
+
+  /**
+   * @return time when timings were created, e.g. when connect was requested
+   */
+  public long getCreatedAtNanos() {
+    return createdAtNanos;
+  }
+
+  /**
+   * Completes timings of web socket handshake from its response, in place of events OkHttp doesn't
+   * emit for web socket calls. Called by {@link HandshakeTracer} once response headers are read.
+   * Request is taken as sent when OkHttp stamped it on the response, so TLS handshake (or pooled
+   * connection setup) ends then; the stamp has millisecond precision.
+   */
+  void handshakeResponse(@NonNull Response response) {
+    final long endNanos = System.nanoTime();
+    final long requestMs = Math.max(0,
+        response.receivedResponseAtMillis() - response.sentRequestAtMillis());
+    final long requestNanos = Math.max(callStartNanos, endNanos - requestMs * 1_000_000);
+    if (secureConnectStartNanos != 0 && secureConnectEndNanos == 0) {
+      secureConnectEndNanos = Math.max(secureConnectStartNanos, requestNanos);
+      connectEndNanos = secureConnectEndNanos;
+    } else if (connectEndNanos == 0) {
+      connectEndNanos = requestNanos;
+    }
+    requestHeadersStartNanos = Math.max(connectEndNanos, requestNanos);
+    responseHeadersEndNanos = endNanos;
+    protocol = response.protocol().toString();
+    final Handshake handshake = response.handshake();
+    if (handshake != null) {
+      tlsVersion = handshake.tlsVersion().javaName();
+      cipherSuite = handshake.cipherSuite().javaName();
+    }
+  }
+
+  /**
+   * @return phase durations in milliseconds: dnsMs, tcpMs, tlsMs, connectMs (whole connection
+   * setup), responseMs (request sent to response headers), totalMs (call start to response
+   * headers), connectionReused and, when known, protocol, tlsVersion and cipherSuite
+   */
+  public Map<String, Object> toMap() {
+    final long tcpEnd = secureConnectStartNanos != 0 ? secureConnectStartNanos : connectEndNanos;
+    final Map<String, Object> result = new ArrayMap<>(11);
+    result.put("dnsMs", durationMs(dnsStartNanos, dnsEndNanos));
+    result.put("tcpMs", durationMs(connectStartNanos, tcpEnd));
+    result.put("tlsMs", durationMs(secureConnectStartNanos, secureConnectEndNanos));
+    result.put("connectMs", durationMs(callStartNanos, connectEndNanos));
+    result.put("responseMs", durationMs(requestHeadersStartNanos, responseHeadersEndNanos));
+    result.put("totalMs", durationMs(callStartNanos, responseHeadersEndNanos));
+    result.put("connectionReused", isConnectionReused());
+    if (protocol != null) {
+      result.put("protocol", protocol);
+    }
+    if (tlsVersion != null) {
+      result.put("tlsVersion", tlsVersion);
+      result.put("cipherSuite", cipherSuite);
+    }
+    return result;
+  }
+
+  /// PRIVATE
+
+  private static double durationMs(long startNanos, long endNanos) {
+    return startNanos != 0 && endNanos >= startNanos ? (endNanos - startNanos) / 1e6 : -1;
+  }
+}
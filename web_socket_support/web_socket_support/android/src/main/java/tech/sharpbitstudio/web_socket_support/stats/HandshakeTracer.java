@@ -0,0 +1,149 @@
+package tech.sharpbitstudio.web_socket_support.stats;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.List;
+import javax.net.SocketFactory;
+import okhttp3.Call;
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Feeds {@link ConnectionTimings} of web socket handshakes. OkHttp replaces event listener of web
+ * socket calls with EventListener.NONE and skips network interceptors, so listener events are
+ * reconstructed from the parts OkHttp keeps: application interceptors, {@link Dns} and
+ * {@link SocketFactory}.
+ * <p>
+ * Handshake request is traced if it is tagged with {@link ConnectionTimings}. Application
+ * interceptor binds the timings to the calling thread for the duration of the call (OkHttp 4
+ * resolves, connects and runs interceptors of a call on one thread), so DNS and socket wrappers
+ * shared by all calls find the right timings. Response completes the timings: request send time
+ * stamped by OkHttp ends connection setup (TLS handshake included), protocol and TLS parameters
+ * are read from the response.
+ */
+public class HandshakeTracer {
+
+  private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+  private static class Trace {
+
+    final Call call;
+    final ConnectionTimings timings;
+    final boolean https;
+
+    Trace(Call call, ConnectionTimings timings, boolean https) {
+      this.call = call;
+      this.timings = timings;
+      this.https = https;
+    }
+  }
+
+  public static final Interceptor INTERCEPTOR = chain -> {
+    final ConnectionTimings timings = chain.request().tag(ConnectionTimings.class);
+    if (timings == null) {
+      return chain.proceed(chain.request());
+    }
+    final Trace trace = new Trace(chain.call(), timings, chain.request().isHttps());
+    timings.callStart(trace.call);
+    CURRENT.set(trace);
+    try {
+      final Response response = chain.proceed(chain.request());
+      timings.handshakeResponse(response);
+      return response;
+    } finally {
+      CURRENT.remove();
+    }
+  };
+
+  private HandshakeTracer() {
+  }
+
+  /**
+   * @return DNS which records lookups of traced calls
+   */
+  public static Dns dns(@NonNull Dns delegate) {
+    return hostname -> {
+      final Trace trace = CURRENT.get();
+      if (trace != null) {
+        trace.timings.dnsStart(trace.call, hostname);
+      }
+      final List<InetAddress> addresses = delegate.lookup(hostname);
+      if (trace != null) {
+        trace.timings.dnsEnd(trace.call, hostname, addresses);
+      }
+      return addresses;
+    };
+  }
+
+  /**
+   * @return default socket factory whose sockets record TCP connect of traced calls
+   */
+  public static SocketFactory socketFactory() {
+    return new TracingSocketFactory();
+  }
+
+  /// PRIVATE
+
+  private static class TracingSocketFactory extends SocketFactory {
+
+    private final SocketFactory delegate = SocketFactory.getDefault();
+
+    @Override
+    public Socket createSocket() {
+      return new TracingSocket();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+      return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+        throws IOException {
+      return delegate.createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+      return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+        int localPort) throws IOException {
+      return delegate.createSocket(address, port, localAddress, localPort);
+    }
+  }
+
+  private static class TracingSocket extends Socket {
+
+    @Override
+    public void connect(SocketAddress endpoint, int timeout) throws IOException {
+      final Trace trace = CURRENT.get();
+      if (trace == null || !(endpoint instanceof InetSocketAddress)) {
+        super.connect(endpoint, timeout);
+        return;
+      }
+      trace.timings.connectStart(trace.call, (InetSocketAddress) endpoint, Proxy.NO_PROXY);
+      try {
+        super.connect(endpoint, timeout);
+      } catch (IOException e) {
+        trace.timings.connectFailed(trace.call, (InetSocketAddress) endpoint, Proxy.NO_PROXY,
+            null, e);
+        throw e;
+      }
+      if (trace.https) {
+        trace.timings.secureConnectStart(trace.call);
+      } else {
+        trace.timings.connectEnd(trace.call, (InetSocketAddress) endpoint, Proxy.NO_PROXY, null);
+      }
+    }
+  }
+}
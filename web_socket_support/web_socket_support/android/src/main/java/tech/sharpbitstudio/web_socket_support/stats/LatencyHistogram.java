@@ -0,0 +1,79 @@
+package tech.sharpbitstudio.web_socket_support.stats;
+
+import androidx.collection.ArrayMap;
+import java.util.Map;
+
+/**
+ * Fixed bucket histogram of round-trip times. Samples are recorded in microseconds, so sub
+ * millisecond round trips on a local network are not truncated to 0, and reported in (fractional)
+ * milliseconds. Percentiles are estimated as upper bound of the bucket the percentile falls into
+ * (capped by maximal recorded value), so memory and cost of recording stay constant no matter how
+ * many samples are recorded.
+ */
+public class LatencyHistogram {
+
+  // bucket upper bounds (inclusive) in microseconds, last bucket is unbounded
+  private static final long[] BUCKET_BOUNDS_US = {50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000,
+      20_000, 50_000, 100_000, 200_000, 500_000, 1_000_000, 2_000_000, 5_000_000};
+
+  private final long[] buckets = new long[BUCKET_BOUNDS_US.length + 1];
+  private long count;
+  private long sumUs;
+  private long minUs;
+  private long maxUs;
+  private long lastUs;
+
+  public synchronized void record(long rttUs) {
+    final long value = Math.max(0, rttUs);
+    int bucket = 0;
+    while (bucket < BUCKET_BOUNDS_US.length && value > BUCKET_BOUNDS_US[bucket]) {
+      bucket++;
+    }
+    buckets[bucket]++;
+    minUs = count == 0 ? value : Math.min(minUs, value);
+    maxUs = Math.max(maxUs, value);
+    sumUs += value;
+    lastUs = value;
+    count++;
+  }
+
+  /**
+   * @param percentile percentile in range (0, 100]
+   * @return estimated percentile in microseconds, 0 when histogram is empty
+   */
+  public synchronized long percentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKET_BOUNDS_US.length; bucket++) {
+      seen += buckets[bucket];
+      if (seen >= rank) {
+        return Math.max(minUs, Math.min(BUCKET_BOUNDS_US[bucket], maxUs));
+      }
+    }
+    return maxUs;
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  public synchronized Map<String, Object> toMap() {
+    final Map<String, Object> result = new ArrayMap<>(8);
+    result.put("count", count);
+    result.put("minMs", toMs(minUs));
+    result.put("maxMs", toMs(maxUs));
+    result.put("meanMs", count > 0 ? toMs(sumUs) / count : 0d);
+    result.put("lastMs", toMs(lastUs));
+    result.put("p50Ms", toMs(percentile(50)));
+    result.put("p95Ms", toMs(percentile(95)));
+    result.put("p99Ms", toMs(percentile(99)));
+    return result;
+  }
+
+  private static double toMs(long us) {
+    return us / 1000d;
+  }
+}
@@ -0,0 +1,156 @@
+package tech.sharpbitstudio.web_socket_support.stats;
+
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.PING_ID_PLACEHOLDER;
+
+import android.os.Handler;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.function.Predicate;
+import tech.sharpbitstudio.web_socket_support.rpc.RequestCorrelator;
+
+/**
+ * Measures round-trip time with application level pings. OkHttp does not report pongs of its own
+ * pings, so tracker sends a text frame built from ping template ({@value
+ * tech.sharpbitstudio.web_socket_support.domain.Constants#PING_ID_PLACEHOLDER} is replaced with
+ * ping id) and measures time until server's reply with the same id arrives. Replies are matched by
+ * {@link RequestCorrelator} on reader thread, so they are timed without any polling and don't
+ * reach text message stream.
+ * <p>
+ * Server must answer every ping with a text frame carrying the same id (for example an echo of the
+ * ping), there is no standard application level ping. Without such server pings time out, nothing
+ * is recorded and latency stays empty.
+ * <p>
+ * Pings are sent every ping interval while connected and on demand with {@link #ping(Result)}.
+ * All methods must be called on handler thread.
+ */
+public class PingTracker {
+
+  private static final String TAG = "PingTracker";
+
+  private final Handler handler;
+  private final LatencyHistogram histogram;
+  private final RequestCorrelator correlator;
+  private final Predicate<String> sender;
+  private final Runnable pingTask = this::sendScheduledPing;
+
+  private String pingFrame;
+  private String idField;
+  private long pingIntervalMs;
+  private long timeoutMs;
+  private boolean started;
+  private long lastPingId;
+
+  /**
+   * @param sender sends text frame, returns false if frame was rejected
+   */
+  public PingTracker(@NonNull Handler handler, @NonNull LatencyHistogram histogram,
+      @NonNull RequestCorrelator correlator, @NonNull Predicate<String> sender) {
+    this.handler = handler;
+    this.histogram = histogram;
+    this.correlator = correlator;
+    this.sender = sender;
+  }
+
+  /**
+   * Sets ping frame for next connection.
+   *
+   * @param pingFrame      JSON ping template, null disables pings
+   * @param idField        dot separated path of id in ping and reply
+   * @param pingIntervalMs interval of scheduled pings, 0 to ping only on demand
+   * @param timeoutMs      time to wait for reply
+   */
+  public void configure(@Nullable String pingFrame, @NonNull String idField, long pingIntervalMs,
+      long timeoutMs) {
+    this.pingFrame = pingFrame;
+    this.idField = idField;
+    this.pingIntervalMs = Math.max(0, pingIntervalMs);
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Starts scheduled pings of new connection.
+   */
+  public void start() {
+    stop();
+    started = true;
+    if (pingFrame != null && pingIntervalMs > 0) {
+      handler.postDelayed(pingTask, pingIntervalMs);
+    }
+  }
+
+  public void stop() {
+    handler.removeCallbacks(pingTask);
+    started = false;
+  }
+
+  /**
+   * Sends ping now. Round-trip time is recorded and, if result is given, reported in fractional
+   * milliseconds.
+   *
+   * @param result completed with round-trip time, or with error on timeout or close; may be
+   *               completed on any thread
+   * @return false if pings are not configured, not connected or ping was not sent
+   */
+  public boolean ping(@Nullable Result result) {
+    if (pingFrame == null || !started) {
+      return false;
+    }
+    final String payload = pingFrame.replace(PING_ID_PLACEHOLDER, Long.toString(++lastPingId));
+    // register first, pong may be read before send returns
+    final String id = correlator.register(payload, idField, timeoutMs, new PongResult(result));
+    if (id == null) {
+      return false;
+    }
+    if (!sender.test(payload)) {
+      correlator.cancel(id);
+      return false;
+    }
+    return true;
+  }
+
+  /// PRIVATE
+
+  private void sendScheduledPing() {
+    if (!ping(null)) {
+      Log.w(TAG, "Unable to send ping.");
+    }
+    handler.postDelayed(pingTask, pingIntervalMs);
+  }
+
+  private class PongResult implements Result {
+
+    private final Result result;
+    private final long sentAtNanos = System.nanoTime();
+
+    PongResult(Result result) {
+      this.result = result;
+    }
+
+    @Override
+    public void success(Object reply) {
+      final long rttUs = (System.nanoTime() - sentAtNanos) / 1_000;
+      histogram.record(rttUs);
+      if (result != null) {
+        result.success(rttUs / 1000d);
+      }
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+      if (result != null) {
+        result.error(errorCode, errorMessage, errorDetails);
+      } else {
+        Log.w(TAG, "Ping failed. Error:" + errorMessage);
+      }
+    }
+
+    @Override
+    public void notImplemented() {
+      if (result != null) {
+        result.notImplemented();
+      }
+    }
+  }
+}
@@ -2,6 +2,12 @@ package android.util;
 
 public class Log {
 
+  public static final int VERBOSE = 2;
+  public static final int DEBUG = 3;
+  public static final int INFO = 4;
+  public static final int WARN = 5;
+  public static final int ERROR = 6;
+
   public static int d(String tag, String msg) {
     System.out.println("DEBUG: " + tag + ": " + msg);
     return 0;
@@ -1,12 +1,37 @@
 package tech.sharpbitstudio.web_socket_support;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static tech.sharpbitstudio.web_socket_support.ClientConfigurator.PING_INTERVAL_SEC;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_COMPRESSION_MIN_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_AUTO_RECONNECT;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_COMPRESSION;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_COMPRESSION_MIN_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CONNECT_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_PING_INTERVAL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RETRY_ON_CONNECTION_FAILURE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_WRITE_TIMEOUT_MS;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
+import tech.sharpbitstudio.web_socket_support.stats.ConnectionTimings;
 
 public class ClientConfiguratorTest {
 
@@ -27,4 +52,176 @@ public class ClientConfiguratorTest {
     assertNotNull(result);
     assertEquals(PING_INTERVAL_SEC * 1000, result.pingIntervalMillis());
   }
+
+  @Test
+  public void configuredClientCacheTest() {
+
+    // prepare object
+    configurator = new ClientConfigurator();
+    final OkHttpClient baseClient = new OkHttpClient();
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_AUTO_RECONNECT, true);
+    final Map<String, Object> customPingOptions = new HashMap<>();
+    customPingOptions.put(OPTION_PING_INTERVAL, 10);
+
+    // test method
+    OkHttpClient first = configurator.configure(baseClient, Collections.emptyMap());
+    OkHttpClient second = configurator.configure(baseClient, options);
+    OkHttpClient third = configurator.configure(baseClient, customPingOptions);
+
+    // options which do not affect client share the same client
+    assertSame(first, second);
+    assertNotSame(first, third);
+    assertEquals(10 * 1000, third.pingIntervalMillis());
+    assertEquals(1, configurator.getCacheHitCount());
+    assertEquals(2, configurator.getCacheMissCount());
+  }
+
+  @Test
+  public void compressionSetupTest() {
+
+    // prepare object
+    configurator = new ClientConfigurator();
+    final OkHttpClient baseClient = new OkHttpClient();
+
+    // data
+    final Map<String, Object> minSizeOptions = new HashMap<>();
+    minSizeOptions.put(OPTION_COMPRESSION_MIN_SIZE, 256);
+    final Map<String, Object> disabledOptions = new HashMap<>();
+    disabledOptions.put(OPTION_COMPRESSION, false);
+
+    // test method
+    OkHttpClient defaultClient = configurator.configure(baseClient, Collections.emptyMap());
+    OkHttpClient minSizeClient = configurator.configure(baseClient, minSizeOptions);
+    OkHttpClient disabledClient = configurator.configure(baseClient, disabledOptions);
+
+    // validate compression setup
+    assertEquals(DEFAULT_COMPRESSION_MIN_SIZE, defaultClient.minWebSocketMessageToCompress());
+    assertEquals(256, minSizeClient.minWebSocketMessageToCompress());
+    assertEquals(DEFAULT_COMPRESSION_MIN_SIZE, disabledClient.minWebSocketMessageToCompress());
+  }
+
+  @Test
+  public void zeroOptionsSetupTest() {
+
+    // prepare object
+    configurator = new ClientConfigurator();
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_PING_INTERVAL, 0);
+    options.put(OPTION_COMPRESSION_MIN_SIZE, 0);
+
+    // test method
+    OkHttpClient result = configurator.configure(new OkHttpClient(), options);
+
+    // explicit 0 disables pings and compresses every frame
+    assertEquals(0, result.pingIntervalMillis());
+    assertEquals(0, result.minWebSocketMessageToCompress());
+  }
+
+  @Test
+  public void compressionHandshakeTest() throws Exception {
+
+    // prepare object
+    configurator = new ClientConfigurator();
+    final MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+    }));
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+    }));
+    server.start();
+
+    // data
+    final Map<String, Object> disabledOptions = new HashMap<>();
+    disabledOptions.put(OPTION_COMPRESSION, false);
+    final Request request = new Request.Builder().url(server.url("/ws")).build();
+
+    // test method
+    openWebSocket(configurator.configure(new OkHttpClient(), Collections.emptyMap()), request);
+    openWebSocket(configurator.configure(new OkHttpClient(), disabledOptions), request);
+
+    // validate that permessage-deflate offer is removed only when compression is disabled
+    assertNotNull(server.takeRequest(5, TimeUnit.SECONDS)
+        .getHeader(ClientConfigurator.HEADER_WEB_SOCKET_EXTENSIONS));
+    assertNull(server.takeRequest(5, TimeUnit.SECONDS)
+        .getHeader(ClientConfigurator.HEADER_WEB_SOCKET_EXTENSIONS));
+    server.shutdown();
+  }
+
+  @Test
+  public void timeoutsSetupTest() {
+
+    // prepare object
+    configurator = new ClientConfigurator();
+    final OkHttpClient baseClient = new OkHttpClient();
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_CONNECT_TIMEOUT_MS, 2000);
+    options.put(OPTION_WRITE_TIMEOUT_MS, 0);
+    options.put(OPTION_RETRY_ON_CONNECTION_FAILURE, false);
+
+    // test method
+    OkHttpClient result = configurator.configure(baseClient, options);
+
+    // validate timeouts, read timeout is inherited from base client
+    assertEquals(2000, result.connectTimeoutMillis());
+    assertEquals(0, result.writeTimeoutMillis());
+    assertEquals(baseClient.readTimeoutMillis(), result.readTimeoutMillis());
+    assertFalse(result.retryOnConnectionFailure());
+  }
+
+  @Test
+  public void handshakeTimingsTest() throws Exception {
+
+    // prepare object
+    configurator = new ClientConfigurator();
+    final MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+    }));
+    server.start();
+
+    // data
+    final ConnectionTimings timings = new ConnectionTimings();
+    final Request request = new Request.Builder().url(server.url("/ws"))
+        .tag(ConnectionTimings.class, timings).build();
+    final CountDownLatch opened = new CountDownLatch(1);
+
+    // test method
+    final WebSocket webSocket = configurator
+        .configure(new OkHttpClient(), Collections.emptyMap())
+        .newWebSocket(request, new WebSocketListener() {
+          @Override
+          public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
+            opened.countDown();
+          }
+        });
+    assertTrue(opened.await(5, TimeUnit.SECONDS));
+    webSocket.cancel();
+    server.shutdown();
+
+    // validate that handshake phases are recorded although OkHttp drops event listener
+    final Map<String, Object> result = timings.toMap();
+    assertSame(timings, webSocket.request().tag(ConnectionTimings.class));
+    assertTrue((Double) result.get("tcpMs") >= 0);
+    assertTrue((Double) result.get("responseMs") >= 0);
+    assertEquals(-1.0, result.get("tlsMs"));
+    assertEquals(false, result.get("connectionReused"));
+    assertEquals("http/1.1", result.get("protocol"));
+  }
+
+  private static void openWebSocket(OkHttpClient client, Request request) throws Exception {
+    final CountDownLatch opened = new CountDownLatch(1);
+    final WebSocket webSocket = client.newWebSocket(request, new WebSocketListener() {
+      @Override
+      public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
+        opened.countDown();
+      }
+    });
+    assertTrue(opened.await(5, TimeUnit.SECONDS));
+    webSocket.cancel();
+  }
 }
@@ -0,0 +1,104 @@
+package tech.sharpbitstudio.web_socket_support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import tech.sharpbitstudio.web_socket_support.domain.ClientOptions;
+
+public class ConnectionPrewarmerTest {
+
+  private final MockWebServer server = new MockWebServer();
+  private final OkHttpClient okHttpClient = new OkHttpClient();
+  private final ClientConfigurator configurator = new ClientConfigurator();
+
+  // tested class
+  private ConnectionPrewarmer prewarmer;
+
+  @Before
+  public void before() throws Exception {
+    server.start();
+    prewarmer = new ConnectionPrewarmer(configurator);
+  }
+
+  @After
+  public void after() throws Exception {
+    server.shutdown();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void prewarmedConnectionReusedByConnectTest() throws Exception {
+
+    // data
+    final String serverUrl = server.url("/ws").toString().replace("http", "ws");
+    final ClientOptions options = ClientOptions.fromOptions(Collections.emptyMap(),
+        new ArrayList<>());
+    final Result result = Mockito.mock(Result.class);
+    server.enqueue(new MockResponse().setResponseCode(400));
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+    }));
+
+    // test method
+    prewarmer.prewarm(okHttpClient, serverUrl, options, result);
+
+    // verify that timings of new connection are reported
+    ArgumentCaptor<Map<String, Object>> timings = ArgumentCaptor.forClass(Map.class);
+    verify(result, timeout(5000)).success(timings.capture());
+    assertFalse((Boolean) timings.getValue().get("connectionReused"));
+    assertTrue((Double) timings.getValue().get("totalMs") >= 0);
+
+    // connect with the same options
+    final CountDownLatch opened = new CountDownLatch(1);
+    final WebSocket webSocket = configurator.configure(okHttpClient, options).newWebSocket(
+        new Request.Builder().url(serverUrl).build(), new WebSocketListener() {
+          @Override
+          public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
+            opened.countDown();
+          }
+        });
+    assertTrue(opened.await(5, TimeUnit.SECONDS));
+    webSocket.cancel();
+
+    // verify that handshake was sent over prewarmed connection
+    assertEquals("HEAD", server.takeRequest().getMethod());
+    assertEquals(1, server.takeRequest().getSequenceNumber());
+  }
+
+  @Test
+  public void prewarmInvalidUrlTest() {
+
+    // data
+    final Result result = Mockito.mock(Result.class);
+
+    // test method
+    prewarmer.prewarm(okHttpClient, "not a url", ClientOptions.fromOptions(
+        Collections.emptyMap(), new ArrayList<>()), result);
+
+    // verify error
+    verify(result).error(Mockito.eq("07"), anyString(), any());
+  }
+}
@@ -3,7 +3,9 @@ package tech.sharpbitstudio.web_socket_support;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -12,21 +14,84 @@ import static org.mockito.Matchers.anyMap;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BUFFERED_FRAMES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BYTES_QUEUED;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BYTE_MESSAGE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_CHUNK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_CONNECTION_ID;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_CREDITS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_DROPPED_FRAMES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_FILTER_ID;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_FILTER_TYPE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_KEY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_LAST;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_LENGTH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_MESSAGE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_OFFSET;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_OPEN_MS;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_OPTIONS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_QUEUE_SIZE;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_TEXT_MESSAGE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_TEXT_MESSAGES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_TOTAL_LENGTH;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_URL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_VALUE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.DEFAULT_CONNECTION_ID;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.FILTER_TYPE_BYTES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.FILTER_TYPE_JSON;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_ADD_FILTER;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_CONNECT;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_DISCONNECT;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_GET_LATENCY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_GET_STATS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_PING;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_QUEUE_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_REMOVE_FILTER;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_REQUEST;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_REQUEST_MESSAGES;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_BYTE_MSG;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_FILE;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_TEXT_MSG;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_TEXT_MSGS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_AUTO_RECONNECT;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_BATCH_MAX_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_BATCH_MESSAGES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CAPTURE_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CONFLATE_KEY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_CONNECT_TIMEOUT_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_DIRECT_BINARY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_FLOW_CONTROL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_INBOUND_BUFFER_MAX_FRAMES;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_INBOUND_INITIAL_CREDITS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_CHUNK_SIZE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_MODE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_LARGE_BINARY_THRESHOLD;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_OUTBOX_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_PING_FRAME;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_PING_INTERVAL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_BASE_DELAY_MS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RECONNECT_MAX_ATTEMPTS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_REPLAY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_REPLAY_SPEED;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_FRAME;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_QUERY_PARAM;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_RESUME_SEQ_KEY_PATH;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_DROP_POLICY;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_HIGH_WATERMARK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_LOW_WATERMARK;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_QUEUE_MAX_BYTES;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.OUT_METHOD_NAME_ON_BYTE_MSG;
 import static tech.sharpbitstudio.web_socket_support.domain.Constants.OUT_METHOD_NAME_ON_TEXT_MSG;
 
 import android.os.Handler;
+import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.EventChannel.EventSink;
 import io.flutter.plugin.common.EventChannel.StreamHandler;
@@ -34,8 +99,18 @@ import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import kotlin.text.Charsets;
 import okhttp3.OkHttpClient;
@@ -43,14 +118,21 @@ import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
 import okio.ByteString;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import tech.sharpbitstudio.web_socket_support.delivery.DirectBinaryChannel;
+import tech.sharpbitstudio.web_socket_support.delivery.OutboundQueue;
+import tech.sharpbitstudio.web_socket_support.domain.ClientOptions;
 import tech.sharpbitstudio.web_socket_support.domain.SystemEventType;
+import tech.sharpbitstudio.web_socket_support.reconnect.NetworkMonitor;
 
 @RunWith(JUnit4.class)
 public class WebSocketClientTest {
@@ -59,11 +141,13 @@ public class WebSocketClientTest {
   private final OkHttpClient mockedClient = Mockito.mock(OkHttpClient.class);
   private final Handler handler = Mockito.mock(Handler.class);
   private final ClientConfigurator configurator = Mockito.mock(ClientConfigurator.class);
+  private final NetworkMonitor networkMonitor = Mockito.mock(NetworkMonitor.class);
   private final MethodChannel methodChannel = Mockito.mock(MethodChannel.class);
   private final EventChannel textMessageEventChannel = Mockito.mock(EventChannel.class);
   private final EventChannel binaryMessageEventChannel = Mockito.mock(EventChannel.class);
   private final EventSink textEventSink = Mockito.mock(EventSink.class);
   private final EventSink byteEventSink = Mockito.mock(EventSink.class);
+  private final BinaryMessenger binaryMessenger = Mockito.mock(BinaryMessenger.class);
 
   // locals
   private final AtomicReference<MethodCallHandler> callHandler = new AtomicReference<>();
@@ -89,7 +173,7 @@ public class WebSocketClientTest {
       return null;
     }).when(methodChannel).invokeMethod(anyString(), anyMap(), any(Result.class));
     // configurator
-    when(configurator.configure(any(OkHttpClient.class), anyMap()))
+    when(configurator.configure(any(OkHttpClient.class), any(ClientOptions.class)))
         .thenReturn(mockedClient);
     // handler
     when(handler.post(any(Runnable.class))).then(invocation -> {
@@ -111,8 +195,9 @@ public class WebSocketClientTest {
     }).when(binaryMessageEventChannel).setStreamHandler(any(StreamHandler.class));
 
     // instantiate target class
-    client = new WebSocketClient(mockedClient, handler, configurator,
-        methodChannel, textMessageEventChannel, binaryMessageEventChannel);
+    client = new WebSocketClient(mockedClient, handler, handler, configurator, networkMonitor,
+        methodChannel, textMessageEventChannel, binaryMessageEventChannel,
+        new DirectBinaryChannel(binaryMessenger, "direct"));
   }
 
   @Test
@@ -171,7 +256,7 @@ public class WebSocketClientTest {
     methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
 
     // verify new web socket called
-    verify(configurator, times(2)).configure(any(OkHttpClient.class), anyMap());
+    verify(configurator, times(2)).configure(any(OkHttpClient.class), any(ClientOptions.class));
     verify(mockedClient, times(2)).newWebSocket(any(), any());
   }
 
@@ -219,7 +304,7 @@ public class WebSocketClientTest {
     assertEquals(SystemEventType.WS_FAILURE.getMethodName(), argumentMethodName2.getValue());
 
     // verify new web socket called
-    verify(configurator, times(2)).configure(any(OkHttpClient.class), anyMap());
+    verify(configurator, times(2)).configure(any(OkHttpClient.class), any(ClientOptions.class));
     verify(mockedClient, times(2)).newWebSocket(any(), any());
   }
 
@@ -241,8 +326,9 @@ public class WebSocketClientTest {
     }).when(binaryMessageEventChannel).setStreamHandler(any(StreamHandler.class));
 
     // instantiate target class
-    client = new WebSocketClient(mockedClient, handler, configurator,
-        methodChannel, textMessageEventChannel, binaryMessageEventChannel);
+    client = new WebSocketClient(mockedClient, handler, handler, configurator, networkMonitor,
+        methodChannel, textMessageEventChannel, binaryMessageEventChannel,
+        new DirectBinaryChannel(binaryMessenger, "direct"));
 
     // init streams
     streamHandlers[0].onListen(null, textEventSink);
@@ -476,6 +562,1026 @@ public class WebSocketClientTest {
     verify(result).error(anyString(), anyString(), any());
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void invalidConnectOptionsTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_PING_INTERVAL, "10");
+    options.put(OPTION_CONNECT_TIMEOUT_MS, -1);
+    options.put("unknownOption", true);
+    options.put(OPTION_SEND_HIGH_WATERMARK, OutboundQueue.MAX_FRAME_BYTES + 1);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+
+    // verify that all problems are reported and connection is still opened with defaults
+    ArgumentCaptor<Map<String, Object>> argumentEvent = ArgumentCaptor.forClass(Map.class);
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_INVALID_OPTIONS.getMethodName()),
+        argumentEvent.capture());
+    assertEquals(4, ((List<String>) argumentEvent.getValue().get("problems")).size());
+    verify(mockedClient).newWebSocket(any(Request.class), any(WebSocketListener.class));
+  }
+
+  @Test
+  public void sendTextMessagesTest() {
+
+    // data
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_TEXT_MESSAGES, Arrays.asList("1", "2", "3"));
+    final Result result = Mockito.mock(Result.class);
+
+    // move state to connected, third message is rejected
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(anyString())).thenReturn(true, true, false);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSGS, arguments, result);
+
+    // verify that messages are sent in order and accepted count is returned
+    ArgumentCaptor<String> argumentMessage = ArgumentCaptor.forClass(String.class);
+    verify(mockedWebSocket, times(3)).send(argumentMessage.capture());
+    assertEquals(Arrays.asList("1", "2", "3"), argumentMessage.getAllValues());
+    verify(result).success(2);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getStatsTest() {
+
+    // data
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_TEXT_MESSAGES, Arrays.asList("1", "22"));
+    final Result result = Mockito.mock(Result.class);
+
+    // move state to connected, receive two frames and send two (second is rejected)
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(anyString())).thenReturn(true, false);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(mockedWebSocket, "abc");
+    client.onMessage(mockedWebSocket, ByteString.of((byte) 1, (byte) 2));
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSGS, arguments, result);
+
+    when(configurator.getCacheHitCount()).thenReturn(4L);
+    when(configurator.getCacheMissCount()).thenReturn(1L);
+
+    // test method
+    final Result statsResult = Mockito.mock(Result.class);
+    methodChannel.invokeMethod(IN_METHOD_NAME_GET_STATS, new HashMap<>(), statsResult);
+
+    // verify counters
+    ArgumentCaptor<Object> argumentStats = ArgumentCaptor.forClass(Object.class);
+    verify(statsResult).success(argumentStats.capture());
+    final Map<String, Object> stats = (Map<String, Object>) argumentStats.getValue();
+    assertEquals(1L, stats.get("textFramesIn"));
+    assertEquals(3L, stats.get("textBytesIn"));
+    assertEquals(1L, stats.get("binaryFramesIn"));
+    assertEquals(2L, stats.get("binaryBytesIn"));
+    assertEquals(1L, stats.get("textFramesOut"));
+    assertEquals(1L, stats.get("textBytesOut"));
+    assertEquals(1L, stats.get("failedSends"));
+    assertEquals(0L, stats.get("reconnectAttempts"));
+    assertEquals(4L, stats.get("clientCacheHits"));
+    assertEquals(1L, stats.get("clientCacheMisses"));
+    assertEquals(0, stats.get(ARGUMENT_BUFFERED_FRAMES));
+    assertEquals(0L, stats.get(ARGUMENT_DROPPED_FRAMES));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void pingLatencyTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_PING_INTERVAL, 2);
+    options.put(OPTION_PING_FRAME, "{\"type\":\"ping\",\"id\":\"p{id}\"}");
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Result pingResult = Mockito.mock(Result.class);
+
+    // stubbing
+    // delayed tasks are executed manually
+    final Map<Long, Runnable> delayedTasks = new HashMap<>();
+    when(handler.postDelayed(any(Runnable.class), anyLong())).then(invocation -> {
+      delayedTasks.put(invocation.getArgument(1, Long.class),
+          invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+
+    // connect and move state to connected
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(anyString())).thenReturn(true);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    // scheduled ping is sent, then pong is received
+    assertNotNull(delayedTasks.get(2000L));
+    delayedTasks.remove(2000L).run();
+    verify(mockedWebSocket).send("{\"type\":\"ping\",\"id\":\"p1\"}");
+    assertNotNull(delayedTasks.get(2000L));
+    client.onMessage(mockedWebSocket, "{\"type\":\"pong\",\"id\":\"p1\"}");
+    // ping requested by application
+    methodChannel.invokeMethod(IN_METHOD_NAME_PING, new HashMap<>(), pingResult);
+    verify(mockedWebSocket).send("{\"type\":\"ping\",\"id\":\"p2\"}");
+    client.onMessage(mockedWebSocket, "{\"type\":\"pong\",\"id\":\"p2\"}");
+
+    // verify that pongs are consumed and round-trip times are recorded
+    verify(pingResult).success(any(Double.class));
+    verify(textEventSink, never()).success(any());
+    final Result latencyResult = Mockito.mock(Result.class);
+    methodChannel.invokeMethod(IN_METHOD_NAME_GET_LATENCY, new HashMap<>(), latencyResult);
+    ArgumentCaptor<Object> argumentLatency = ArgumentCaptor.forClass(Object.class);
+    verify(latencyResult).success(argumentLatency.capture());
+    final Map<String, Object> latency = (Map<String, Object>) argumentLatency.getValue();
+    assertEquals(2L, latency.get("count"));
+    assertTrue(latency.get("p50Ms") instanceof Double);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void sendFileTest() throws Exception {
+
+    // data
+    final File file = File.createTempFile("ws_test_", ".bin");
+    file.deleteOnExit();
+    Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5});
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_PATH, file.getAbsolutePath());
+    arguments.put(ARGUMENT_OFFSET, 1);
+    arguments.put(ARGUMENT_LENGTH, 3);
+    final Result result = Mockito.mock(Result.class);
+
+    // move state to connected
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(any(ByteString.class))).thenReturn(true);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_FILE, arguments, result);
+
+    // verify that requested range is read on file reader thread, sent and completion is reported
+    verify(result, timeout(1000)).success(1L);
+    verify(mockedWebSocket).send(ByteString.of((byte) 2, (byte) 3, (byte) 4));
+    ArgumentCaptor<Map<String, Object>> argumentEvent = ArgumentCaptor.forClass(Map.class);
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_SEND_PROGRESS.getMethodName()), argumentEvent.capture());
+    assertEquals(3L, argumentEvent.getValue().get("bytesSent"));
+    assertEquals(3L, argumentEvent.getValue().get("totalBytes"));
+
+    // verify that range outside of file is rejected
+    arguments.put(ARGUMENT_LENGTH, 10);
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_FILE, arguments, result);
+    verify(result).error(Mockito.eq("04"), anyString(), any());
+
+    // verify that range larger than a frame is rejected before it is read
+    try (RandomAccessFile sparse = new RandomAccessFile(file, "rw")) {
+      sparse.setLength(OutboundQueue.MAX_FRAME_BYTES + 2);
+    }
+    arguments.remove(ARGUMENT_LENGTH);
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_FILE, arguments, result);
+    verify(result).error(Mockito.eq("02"), anyString(), any());
+    verify(mockedWebSocket, times(1)).send(any(ByteString.class));
+  }
+
+  @Test
+  public void sendFileDroppedFromQueueTest() throws Exception {
+
+    // data
+    final File file = File.createTempFile("ws_test_", ".bin");
+    file.deleteOnExit();
+    Files.write(file.toPath(), new byte[]{1, 2, 3});
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_SEND_HIGH_WATERMARK, 10);
+    options.put(OPTION_SEND_QUEUE_MAX_BYTES, 4);
+    options.put(OPTION_SEND_DROP_POLICY, "dropOldest");
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Map<String, Object> fileArguments = new HashMap<>();
+    fileArguments.put(ARGUMENT_PATH, file.getAbsolutePath());
+    final Map<String, Object> textArguments = new HashMap<>();
+    textArguments.put(ARGUMENT_TEXT_MESSAGE, "1234");
+    final Result result = Mockito.mock(Result.class);
+
+    // stubbing
+    // queue drain and progress polling are executed manually
+    final List<Runnable> delayed = new CopyOnWriteArrayList<>();
+    when(handler.postDelayed(any(Runnable.class), anyLong())).then(invocation -> {
+      delayed.add(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+
+    // connect and move state to connected, OkHttp buffer is almost full
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(anyString())).thenReturn(true);
+    when(mockedWebSocket.queueSize()).thenReturn(8L);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method, queued file frame is dropped to make room for text frame
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_FILE, fileArguments, result);
+    verify(result, timeout(1000)).success(1L);
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSG, textArguments, result);
+    when(mockedWebSocket.queueSize()).thenReturn(0L);
+    for (Runnable task : delayed) {
+      task.run();
+    }
+
+    // verify that only text frame is sent and dropped file frame is not reported as sent
+    verify(mockedWebSocket).send("1234");
+    verify(mockedWebSocket, never()).send(any(ByteString.class));
+    verify(methodChannel, never()).invokeMethod(
+        Mockito.eq(SystemEventType.WS_SEND_PROGRESS.getMethodName()), anyMap());
+  }
+
+  @Test
+  public void sendMessagesThroughOutboxTest() throws Exception {
+
+    // data
+    final File journal = File.createTempFile("ws_outbox_", ".journal");
+    journal.deleteOnExit();
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_OUTBOX_PATH, journal.getAbsolutePath());
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Map<String, Object> textArguments = new HashMap<>();
+    textArguments.put(ARGUMENT_TEXT_MESSAGE, "offline text");
+    final Map<String, Object> byteArguments = new HashMap<>();
+    byteArguments.put(ARGUMENT_BYTE_MESSAGE, new byte[]{1, 2});
+    final Result result = Mockito.mock(Result.class);
+
+    // test method, send messages before connection is opened
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSG, textArguments, result);
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_BYTE_MSG, byteArguments, result);
+
+    // verify that messages are accepted and journaled on outbox thread
+    verify(result, times(2)).success(null);
+    awaitOutbox();
+    assertTrue(journal.length() > 0);
+
+    // reconnect, journal is reopened and replayed on open
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(anyString())).thenReturn(true);
+    when(mockedWebSocket.send(any(ByteString.class))).thenReturn(true);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    awaitOutbox();
+    awaitOutbox();
+
+    // verify that messages are sent in order and journal is emptied
+    final InOrder inOrder = Mockito.inOrder(mockedWebSocket);
+    inOrder.verify(mockedWebSocket).send("offline text");
+    inOrder.verify(mockedWebSocket).send(ByteString.of((byte) 1, (byte) 2));
+    assertEquals(0, journal.length());
+  }
+
+  @Test
+  public void sendMessageAfterDisconnectNotJournaledTest() throws Exception {
+
+    // data
+    final File journal = File.createTempFile("ws_outbox_", ".journal");
+    journal.deleteOnExit();
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_OUTBOX_PATH, journal.getAbsolutePath());
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Map<String, Object> textArguments = new HashMap<>();
+    textArguments.put(ARGUMENT_TEXT_MESSAGE, "late text");
+    final Result result = Mockito.mock(Result.class);
+
+    // test method, send message after explicit disconnect
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    methodChannel.invokeMethod(IN_METHOD_NAME_DISCONNECT, new HashMap<>(),
+        Mockito.mock(Result.class));
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSG, textArguments, result);
+
+    // verify that message is rejected and not journaled
+    verify(result).error(Mockito.eq("01"), anyString(), any());
+    verify(result, never()).success(any());
+    awaitOutbox();
+    assertEquals(0, journal.length());
+  }
+
+  @Test
+  public void sendMessageBeforeOutboxReplayTest() throws Exception {
+
+    // data
+    final File journal = File.createTempFile("ws_outbox_", ".journal");
+    journal.deleteOnExit();
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_OUTBOX_PATH, journal.getAbsolutePath());
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Map<String, Object> offlineArguments = new HashMap<>();
+    offlineArguments.put(ARGUMENT_TEXT_MESSAGE, "offline text");
+    final Map<String, Object> onlineArguments = new HashMap<>();
+    onlineArguments.put(ARGUMENT_TEXT_MESSAGE, "online text");
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(anyString())).thenReturn(true);
+    final Result result = Mockito.mock(Result.class);
+
+    // journal message while not connected
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSG, offlineArguments, result);
+
+    // stubbing
+    // dispatch tasks are executed manually, outbox thread posts to dispatch thread as well
+    final List<Runnable> dispatchTasks = new CopyOnWriteArrayList<>();
+    when(handler.post(any(Runnable.class))).then(invocation -> {
+      dispatchTasks.add(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+
+    // test method, send message after open is reported but before open task runs
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSG, onlineArguments, result);
+    verify(mockedWebSocket, never()).send(anyString());
+    do {
+      awaitOutbox();
+      final List<Runnable> tasks = new ArrayList<>(dispatchTasks);
+      dispatchTasks.removeAll(tasks);
+      tasks.forEach(Runnable::run);
+      awaitOutbox();
+    } while (!dispatchTasks.isEmpty());
+
+    // verify that journaled message is sent first
+    verify(result, times(2)).success(null);
+    final InOrder inOrder = Mockito.inOrder(mockedWebSocket);
+    inOrder.verify(mockedWebSocket).send("offline text");
+    inOrder.verify(mockedWebSocket).send("online text");
+    assertEquals(0, journal.length());
+  }
+
+  @Test
+  public void requestReplyAndTimeoutTest() throws Exception {
+
+    // data
+    final String reply = "{\"id\":\"a1\",\"ok\":true}";
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_TEXT_MESSAGE, "{\"id\":\"a1\",\"op\":\"get\"}");
+    arguments.put(ARGUMENT_TIMEOUT_MS, 1000);
+    final Map<String, Object> timeoutArguments = new HashMap<>();
+    timeoutArguments.put(ARGUMENT_TEXT_MESSAGE, "{\"id\":\"a2\",\"op\":\"get\"}");
+    timeoutArguments.put(ARGUMENT_TIMEOUT_MS, 0);
+    final Result result = Mockito.mock(Result.class);
+    final Result timeoutResult = Mockito.mock(Result.class);
+
+    // stubbing
+    // timer wheel ticks are executed manually
+    final AtomicReference<Runnable> tickTask = new AtomicReference<>();
+    when(handler.postDelayed(any(Runnable.class), anyLong())).then(invocation -> {
+      tickTask.set(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+
+    // move state to connected
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(anyString())).thenReturn(true);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_REQUEST, arguments, result);
+    client.onMessage(mockedWebSocket, reply);
+
+    // verify that reply completes request and is not delivered to text stream
+    verify(mockedWebSocket).send("{\"id\":\"a1\",\"op\":\"get\"}");
+    verify(result).success(reply);
+    verify(textEventSink, never()).success(any());
+
+    // verify that timeout of completed request is canceled and wheel stops ticking
+    verify(handler).removeCallbacks(tickTask.get());
+
+    // verify that request without reply times out on wheel tick
+    methodChannel.invokeMethod(IN_METHOD_NAME_REQUEST, timeoutArguments, timeoutResult);
+    Thread.sleep(30);
+    tickTask.get().run();
+    verify(timeoutResult).error(Mockito.eq("05"), anyString(), Mockito.eq("a2"));
+    verify(result, never()).error(anyString(), anyString(), any());
+  }
+
+  @Test
+  public void requestReplyReadBeforeSendReturnsTest() {
+
+    // data
+    final String reply = "{\"id\":\"a1\",\"ok\":true}";
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_TEXT_MESSAGE, "{\"id\":\"a1\",\"op\":\"get\"}");
+    arguments.put(ARGUMENT_TIMEOUT_MS, 1000);
+    final Result result = Mockito.mock(Result.class);
+
+    // stubbing
+    // reply is read while request is still being sent
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(anyString())).then(invocation -> {
+      client.onMessage(mockedWebSocket, reply);
+      return true;
+    });
+    when(handler.postDelayed(any(Runnable.class), anyLong())).thenReturn(true);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_REQUEST, arguments, result);
+
+    // verify that reply completes request and is not delivered to text stream
+    verify(result).success(reply);
+    verify(result, never()).error(anyString(), anyString(), any());
+    verify(textEventSink, never()).success(any());
+  }
+
+  @Test
+  public void sendTextMessageBackpressureTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_SEND_HIGH_WATERMARK, 10);
+    options.put(OPTION_SEND_LOW_WATERMARK, 5);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Map<String, Object> sendArguments = new HashMap<>();
+    sendArguments.put(ARGUMENT_TEXT_MESSAGE, "12345");
+    final Result result = Mockito.mock(Result.class);
+
+    // stubbing
+    // queue drain is executed manually
+    final AtomicReference<Runnable> drainTask = new AtomicReference<>();
+    when(handler.postDelayed(any(Runnable.class), anyLong())).then(invocation -> {
+      drainTask.set(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+
+    // connect and move state to connected, OkHttp buffer is almost full
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.send(anyString())).thenReturn(true);
+    when(mockedWebSocket.queueSize()).thenReturn(8L);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSG, sendArguments, result);
+
+    // verify that message is queued and Flutter is notified
+    verify(result).success(any());
+    verify(mockedWebSocket, never()).send(anyString());
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_NOT_WRITABLE.getMethodName()), anyMap());
+
+    // verify queue size query
+    final Result queueSizeResult = Mockito.mock(Result.class);
+    methodChannel.invokeMethod(IN_METHOD_NAME_QUEUE_SIZE, new HashMap<>(), queueSizeResult);
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Map<String, Object>> queueStateCaptor = ArgumentCaptor.forClass(Map.class);
+    verify(queueSizeResult).success(queueStateCaptor.capture());
+    assertEquals(1, queueStateCaptor.getValue().get(ARGUMENT_QUEUE_SIZE));
+    assertEquals(13L, queueStateCaptor.getValue().get(ARGUMENT_BYTES_QUEUED));
+
+    // verify that queued message is sent when OkHttp buffer drains
+    when(mockedWebSocket.queueSize()).thenReturn(0L);
+    assertNotNull(drainTask.get());
+    drainTask.get().run();
+    verify(mockedWebSocket).send("12345");
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_WRITABLE.getMethodName()), anyMap());
+  }
+
+  @Test
+  public void sendMessageRejectedByQueueTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_SEND_HIGH_WATERMARK, 10);
+    options.put(OPTION_SEND_QUEUE_MAX_BYTES, 4);
+    options.put(OPTION_SEND_DROP_POLICY, "dropNewest");
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Map<String, Object> textArguments = new HashMap<>();
+    textArguments.put(ARGUMENT_TEXT_MESSAGE, "12345");
+    final Map<String, Object> byteArguments = new HashMap<>();
+    byteArguments.put(ARGUMENT_BYTE_MESSAGE, new byte[(int) OutboundQueue.MAX_FRAME_BYTES + 1]);
+    final Result textResult = Mockito.mock(Result.class);
+    final Result byteResult = Mockito.mock(Result.class);
+
+    // connect and move state to connected, OkHttp buffer is almost full
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    when(mockedWebSocket.queueSize()).thenReturn(8L);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSG, textArguments, textResult);
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_BYTE_MSG, byteArguments, byteResult);
+
+    // verify that dropped and oversized frames are reported as failed sends
+    verify(textResult).error(Mockito.eq("01"), anyString(), any());
+    verify(byteResult).error(Mockito.eq("02"), anyString(), any());
+    verify(mockedWebSocket, never()).send(anyString());
+    verify(mockedWebSocket, never()).send(any(ByteString.class));
+  }
+
+  @Test
+  public void receiveConflatedTextMessagesTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_CONFLATE_KEY_PATH, "d.s");
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final String firstA = "{\"t\":[1,{\"s\":\"X\"}],\"d\":{\"n\":\"}\",\"s\":\"A\"},\"p\":1}";
+    final String firstB = "{\"d\":{\"s\":\"B\"},\"p\":1}";
+    final String secondA = "{\"d\": {\"s\": \"A\"}, \"p\": 2}";
+    final String noKey = "[1,2]";
+
+    // connect and move state to connected
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // stubbing
+    // posted tasks are executed manually, as if dispatch thread was busy
+    final List<Runnable> posted = new ArrayList<>();
+    when(handler.post(any(Runnable.class))).then(invocation -> {
+      posted.add(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+
+    // test method
+    client.onMessage(mockedWebSocket, firstA);
+    client.onMessage(mockedWebSocket, firstB);
+    client.onMessage(mockedWebSocket, noKey);
+    client.onMessage(mockedWebSocket, secondA);
+    while (!posted.isEmpty()) {
+      posted.remove(0).run();
+    }
+
+    // verify that only newest frame per key is delivered, in order keys were first seen
+    ArgumentCaptor<String> argumentMessage = ArgumentCaptor.forClass(String.class);
+    verify(textEventSink, times(3)).success(argumentMessage.capture());
+    assertEquals(Arrays.asList(secondA, firstB, noKey), argumentMessage.getAllValues());
+  }
+
+  @Test
+  public void receiveConflatedTextMessagesWithBackgroundDispatchTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_CONFLATE_KEY_PATH, "s");
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // stubbing
+    // dispatch thread runs tasks right away, tasks posted to main thread are executed manually
+    final Handler dispatchHandler = Mockito.mock(Handler.class);
+    when(dispatchHandler.post(any(Runnable.class))).then(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return true;
+    });
+    final List<Runnable> mainTasks = new ArrayList<>();
+    when(handler.post(any(Runnable.class))).then(invocation -> {
+      mainTasks.add(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+    client = new WebSocketClient(mockedClient, handler, dispatchHandler, configurator,
+        networkMonitor, methodChannel, textMessageEventChannel, binaryMessageEventChannel,
+        new DirectBinaryChannel(binaryMessenger, "direct"));
+
+    // connect and move state to connected
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    mainTasks.clear();
+
+    // test method
+    // main thread is busy while frames arrive
+    client.onMessage(mockedWebSocket, "{\"s\":\"A\",\"p\":1}");
+    client.onMessage(mockedWebSocket, "{\"s\":\"A\",\"p\":2}");
+    client.onMessage(mockedWebSocket, "{\"s\":\"A\",\"p\":3}");
+
+    // verify that a single delivery with the newest frame is posted to main thread
+    assertEquals(1, mainTasks.size());
+    mainTasks.remove(0).run();
+    verify(textEventSink).success("{\"s\":\"A\",\"p\":3}");
+    verify(textEventSink, times(1)).success(any());
+  }
+
+  @Test
+  public void receiveTextMessagesWithFlowControlTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_FLOW_CONTROL, true);
+    options.put(OPTION_INBOUND_INITIAL_CREDITS, 1);
+    options.put(OPTION_INBOUND_BUFFER_MAX_FRAMES, 2);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Map<String, Object> requestArguments = new HashMap<>();
+    requestArguments.put(ARGUMENT_CREDITS, 5);
+    final Result result = Mockito.mock(Result.class);
+
+    // connect and move state to connected
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    // first message uses initial credit, second is dropped when fourth arrives
+    client.onMessage(mockedWebSocket, "1");
+    client.onMessage(mockedWebSocket, "2");
+    client.onMessage(mockedWebSocket, "3");
+    client.onMessage(mockedWebSocket, "4");
+    verify(textEventSink).success("1");
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_INBOUND_OVERFLOW.getMethodName()), anyMap());
+    methodChannel.invokeMethod(IN_METHOD_NAME_REQUEST_MESSAGES, requestArguments, result);
+
+    // verify that buffered messages are delivered after credits are granted
+    ArgumentCaptor<String> argumentMessage = ArgumentCaptor.forClass(String.class);
+    verify(textEventSink, times(3)).success(argumentMessage.capture());
+    assertEquals(Arrays.asList("1", "3", "4"), argumentMessage.getAllValues());
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Map<String, Object>> bufferStateCaptor = ArgumentCaptor.forClass(Map.class);
+    verify(result).success(bufferStateCaptor.capture());
+    assertEquals(0, bufferStateCaptor.getValue().get(ARGUMENT_BUFFERED_FRAMES));
+    assertEquals(1L, bufferStateCaptor.getValue().get(ARGUMENT_DROPPED_FRAMES));
+  }
+
+  @Test
+  public void receiveFilteredMessagesTest() {
+
+    // data
+    final Map<String, Object> jsonFilter = new HashMap<>();
+    jsonFilter.put(ARGUMENT_FILTER_ID, "channelA");
+    jsonFilter.put(ARGUMENT_FILTER_TYPE, FILTER_TYPE_JSON);
+    jsonFilter.put(ARGUMENT_KEY_PATH, "ch");
+    jsonFilter.put(ARGUMENT_VALUE, "a");
+    final Map<String, Object> bytesFilter = new HashMap<>();
+    bytesFilter.put(ARGUMENT_FILTER_ID, "type7");
+    bytesFilter.put(ARGUMENT_FILTER_TYPE, FILTER_TYPE_BYTES);
+    bytesFilter.put(ARGUMENT_OFFSET, 1);
+    bytesFilter.put(ARGUMENT_BYTES, new byte[]{7});
+    final Map<String, Object> removeArguments = new HashMap<>();
+    removeArguments.put(ARGUMENT_FILTER_ID, "channelA");
+    final Result result = Mockito.mock(Result.class);
+
+    // add filters and move state to connected
+    methodChannel.invokeMethod(IN_METHOD_NAME_ADD_FILTER, jsonFilter, result);
+    methodChannel.invokeMethod(IN_METHOD_NAME_ADD_FILTER, bytesFilter, result);
+    verify(result, times(2)).success(null);
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    client.onMessage(mockedWebSocket, "{\"ch\":\"a\"}");
+    client.onMessage(mockedWebSocket, "{\"ch\":\"b\"}");
+    client.onMessage(mockedWebSocket, ByteString.of((byte) 1, (byte) 7));
+    client.onMessage(mockedWebSocket, ByteString.of((byte) 7, (byte) 1));
+    methodChannel.invokeMethod(IN_METHOD_NAME_REMOVE_FILTER, removeArguments, result);
+    client.onMessage(mockedWebSocket, "{\"ch\":\"b\"}");
+
+    // verify that only matching frames are delivered, all text frames once filter is removed
+    ArgumentCaptor<String> argumentText = ArgumentCaptor.forClass(String.class);
+    verify(textEventSink, times(2)).success(argumentText.capture());
+    assertEquals(Arrays.asList("{\"ch\":\"a\"}", "{\"ch\":\"b\"}"), argumentText.getAllValues());
+    ArgumentCaptor<byte[]> argumentBytes = ArgumentCaptor.forClass(byte[].class);
+    verify(byteEventSink).success(argumentBytes.capture());
+    assertArrayEquals(new byte[]{1, 7}, argumentBytes.getValue());
+    verify(result).success(true);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void receiveLargeByteMessageTest() throws Exception {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_LARGE_BINARY_THRESHOLD, 4);
+    options.put(OPTION_LARGE_BINARY_CHUNK_SIZE, 3);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final ByteString largeMessage = ByteString.of((byte) 1, (byte) 2, (byte) 3, (byte) 4,
+        (byte) 5, (byte) 6, (byte) 7);
+
+    // connect and move state to connected
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    client.onMessage(mockedWebSocket, ByteString.of((byte) 1));
+    client.onMessage(mockedWebSocket, largeMessage);
+
+    // verify that small message is delivered as is and large one in chunks
+    ArgumentCaptor<Object> argumentEvent = ArgumentCaptor.forClass(Object.class);
+    verify(byteEventSink, times(4)).success(argumentEvent.capture());
+    final List<Object> events = argumentEvent.getAllValues();
+    assertArrayEquals(new byte[]{1}, (byte[]) events.get(0));
+    assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) ((Map<String, Object>) events.get(1))
+        .get(ARGUMENT_CHUNK));
+    assertArrayEquals(new byte[]{7}, (byte[]) ((Map<String, Object>) events.get(3))
+        .get(ARGUMENT_CHUNK));
+    assertEquals(7, ((Map<String, Object>) events.get(3)).get(ARGUMENT_TOTAL_LENGTH));
+    assertEquals(true, ((Map<String, Object>) events.get(3)).get(ARGUMENT_LAST));
+
+    // reconnect with file mode
+    options.put(OPTION_LARGE_BINARY_MODE, "file");
+    client.onClosed(mockedWebSocket, 1000, "");
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(mockedWebSocket, largeMessage);
+
+    // verify that large message is written to file
+    verify(byteEventSink, times(5)).success(argumentEvent.capture());
+    final Map<String, Object> fileEvent = (Map<String, Object>) argumentEvent.getValue();
+    final File file = new File((String) fileEvent.get(ARGUMENT_PATH));
+    assertEquals(7, fileEvent.get(ARGUMENT_LENGTH));
+    assertArrayEquals(largeMessage.toByteArray(), Files.readAllBytes(file.toPath()));
+    assertTrue(file.delete());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void receiveLargeByteMessageWithFlowControlTest() throws Exception {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_LARGE_BINARY_THRESHOLD, 4);
+    options.put(OPTION_LARGE_BINARY_MODE, "file");
+    options.put(OPTION_FLOW_CONTROL, true);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Map<String, Object> requestArguments = new HashMap<>();
+    requestArguments.put(ARGUMENT_CREDITS, 2);
+    final ByteString largeMessage = ByteString.of((byte) 1, (byte) 2, (byte) 3, (byte) 4);
+    final Thread testThread = Thread.currentThread();
+
+    // stubbing
+    // records thread which writes the file
+    final AtomicReference<Thread> writerThread = new AtomicReference<>();
+    doAnswer(invocation -> {
+      if (invocation.getArgument(0) instanceof Map) {
+        writerThread.set(Thread.currentThread());
+      }
+      return null;
+    }).when(byteEventSink).success(any());
+
+    // connect and move state to connected, messages wait for credits
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(mockedWebSocket, largeMessage);
+    client.onMessage(mockedWebSocket, ByteString.of((byte) 9));
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_REQUEST_MESSAGES, requestArguments,
+        Mockito.mock(Result.class));
+
+    // verify that file is written off the granting thread and messages keep their order
+    ArgumentCaptor<Object> argumentEvent = ArgumentCaptor.forClass(Object.class);
+    verify(byteEventSink, timeout(1000).times(2)).success(argumentEvent.capture());
+    final Map<String, Object> fileEvent = (Map<String, Object>) argumentEvent.getAllValues().get(0);
+    final File file = new File((String) fileEvent.get(ARGUMENT_PATH));
+    assertArrayEquals(largeMessage.toByteArray(), Files.readAllBytes(file.toPath()));
+    assertArrayEquals(new byte[]{9}, (byte[]) argumentEvent.getAllValues().get(1));
+    assertNotNull(writerThread.get());
+    assertNotSame(testThread, writerThread.get());
+    assertTrue(file.delete());
+  }
+
+  @Test
+  public void captureAndReplaySessionTest() throws Exception {
+
+    // data
+    final File captureFile = File.createTempFile("ws_capture_", ".bin");
+    captureFile.deleteOnExit();
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_CAPTURE_PATH, captureFile.getAbsolutePath());
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // connect twice with capture and receive messages, second capture is appended
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(mockedWebSocket, "captured text");
+    client.onClosed(mockedWebSocket, 1000, "");
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(mockedWebSocket, ByteString.of((byte) 1, (byte) 2));
+    client.onClosed(mockedWebSocket, 1000, "");
+
+    // test method, replay captured session at maximum speed
+    options.clear();
+    options.put(OPTION_REPLAY_PATH, captureFile.getAbsolutePath());
+    options.put(OPTION_REPLAY_SPEED, 0);
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+
+    // verify that replayed session goes through the same pipeline without network
+    verify(methodChannel, timeout(1000).times(3))
+        .invokeMethod(Mockito.eq(SystemEventType.WS_CLOSED.getMethodName()), anyMap());
+    verify(mockedClient, times(2)).newWebSocket(any(Request.class), any(WebSocketListener.class));
+    verify(textEventSink, times(2)).success("captured text");
+    verify(byteEventSink, times(2)).success(any(byte[].class));
+  }
+
+  @Test
+  public void resumeAfterBufferedFramesTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_RESUME_SEQ_KEY_PATH, "seq");
+    options.put(OPTION_RESUME_QUERY_PARAM, "from");
+    options.put(OPTION_AUTO_RECONNECT, true);
+    options.put(OPTION_FLOW_CONTROL, true);
+    options.put(OPTION_INBOUND_INITIAL_CREDITS, 1);
+    options.put(OPTION_INBOUND_BUFFER_MAX_FRAMES, 10);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl/stream");
+    arguments.put(ARGUMENT_OPTIONS, options);
+    final Map<String, Object> requestArguments = new HashMap<>();
+    requestArguments.put(ARGUMENT_CREDITS, 10);
+
+    // stubbing
+    // reconnect attempt is executed manually
+    final AtomicReference<Runnable> reconnectAttempt = new AtomicReference<>();
+    when(handler.postDelayed(any(Runnable.class), anyLong())).then(invocation -> {
+      reconnectAttempt.set(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+    when(networkMonitor.isNetworkAvailable()).thenReturn(true);
+
+    // connect and receive messages, only first one is delivered, others wait for credits
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(mockedWebSocket, "{\"seq\":1}");
+    client.onMessage(mockedWebSocket, "{\"seq\":2}");
+    client.onMessage(mockedWebSocket, "{\"seq\":3}");
+
+    // test method, reconnect while frames are buffered, server sends them again
+    client.onClosed(mockedWebSocket, 1001, "");
+    reconnectAttempt.get().run();
+    final WebSocket resumedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(resumedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(resumedWebSocket, "{\"seq\":2}");
+    client.onMessage(resumedWebSocket, "{\"seq\":3}");
+    methodChannel.invokeMethod(IN_METHOD_NAME_REQUEST_MESSAGES, requestArguments,
+        Mockito.mock(Result.class));
+
+    // verify that stream is resumed after delivered frame and every frame is delivered once
+    ArgumentCaptor<Request> requestCaptor = ArgumentCaptor.forClass(Request.class);
+    verify(mockedClient, times(2)).newWebSocket(requestCaptor.capture(), any());
+    assertEquals("1", requestCaptor.getValue().url().queryParameter("from"));
+    ArgumentCaptor<String> argumentMessage = ArgumentCaptor.forClass(String.class);
+    verify(textEventSink, times(3)).success(argumentMessage.capture());
+    assertEquals(Arrays.asList("{\"seq\":1}", "{\"seq\":2}", "{\"seq\":3}"),
+        argumentMessage.getAllValues());
+  }
+
+  @Test
+  public void captureReconnectAndReplaySessionTest() throws Exception {
+
+    // data
+    final File captureFile = File.createTempFile("ws_capture_", ".bin");
+    captureFile.deleteOnExit();
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_CAPTURE_PATH, captureFile.getAbsolutePath());
+    options.put(OPTION_AUTO_RECONNECT, true);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // stubbing
+    // reconnect attempt is executed manually
+    final AtomicReference<Runnable> reconnectAttempt = new AtomicReference<>();
+    when(handler.postDelayed(any(Runnable.class), anyLong())).then(invocation -> {
+      reconnectAttempt.set(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+    when(networkMonitor.isNetworkAvailable()).thenReturn(true);
+
+    // connect with capture, receive message, get reconnected and receive another message
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(mockedWebSocket, "before reconnect");
+    client.onClosed(mockedWebSocket, 1001, "");
+    reconnectAttempt.get().run();
+    final WebSocket reconnectedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(reconnectedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(reconnectedWebSocket, "after reconnect");
+    methodChannel.invokeMethod(IN_METHOD_NAME_DISCONNECT, new HashMap<>(),
+        Mockito.mock(Result.class));
+    client.onClosed(reconnectedWebSocket, 1000, "");
+
+    // test method, replay captured session at maximum speed
+    options.clear();
+    options.put(OPTION_REPLAY_PATH, captureFile.getAbsolutePath());
+    options.put(OPTION_REPLAY_SPEED, 0);
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+
+    // verify that frames of both connections are replayed in order
+    verify(methodChannel, timeout(1000).times(3))
+        .invokeMethod(Mockito.eq(SystemEventType.WS_CLOSED.getMethodName()), anyMap());
+    verify(mockedClient, times(2)).newWebSocket(any(Request.class), any(WebSocketListener.class));
+    verify(textEventSink, times(2)).success("before reconnect");
+    verify(textEventSink, times(2)).success("after reconnect");
+    final InOrder inOrder = Mockito.inOrder(textEventSink);
+    inOrder.verify(textEventSink).success("before reconnect");
+    inOrder.verify(textEventSink).success("after reconnect");
+    inOrder.verify(textEventSink).success("before reconnect");
+    inOrder.verify(textEventSink).success("after reconnect");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void resumeAfterReconnectTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_RESUME_SEQ_KEY_PATH, "seq");
+    options.put(OPTION_RESUME_QUERY_PARAM, "from");
+    options.put(OPTION_RESUME_FRAME, "{\"resume\":{seq}}");
+    options.put(OPTION_AUTO_RECONNECT, true);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl/stream");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // stubbing
+    // reconnect attempt is executed manually
+    final AtomicReference<Runnable> reconnectAttempt = new AtomicReference<>();
+    when(handler.postDelayed(any(Runnable.class), anyLong())).then(invocation -> {
+      reconnectAttempt.set(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+    when(networkMonitor.isNetworkAvailable()).thenReturn(true);
+
+    // connect and receive messages with gap and duplicate
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(mockedWebSocket, "{\"seq\":1}");
+    client.onMessage(mockedWebSocket, "{\"seq\":3}");
+    client.onMessage(mockedWebSocket, "{\"seq\":3}");
+
+    // verify that gap and duplicate are reported and duplicate is dropped
+    verify(textEventSink, times(2)).success(anyString());
+    ArgumentCaptor<Map<String, Object>> argumentEvent = ArgumentCaptor.forClass(Map.class);
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_SEQUENCE_GAP.getMethodName()), argumentEvent.capture());
+    assertEquals(2L, argumentEvent.getValue().get("expectedSequence"));
+    assertEquals(3L, argumentEvent.getValue().get("receivedSequence"));
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_DUPLICATE_FRAME.getMethodName()), anyMap());
+
+    // test method, auto reconnect after server closed connection
+    client.onClosed(mockedWebSocket, 1001, "");
+    reconnectAttempt.get().run();
+    final WebSocket resumedWebSocket = Mockito.mock(WebSocket.class);
+    when(resumedWebSocket.send(anyString())).thenReturn(true);
+    client.onOpen(resumedWebSocket, Mockito.mock(Response.class));
+
+    // verify that last sequence is sent in URL and resume frame
+    ArgumentCaptor<Request> requestCaptor = ArgumentCaptor.forClass(Request.class);
+    verify(mockedClient, times(2)).newWebSocket(requestCaptor.capture(), any());
+    assertNull(requestCaptor.getAllValues().get(0).url().queryParameter("from"));
+    assertEquals("3", requestCaptor.getAllValues().get(1).url().queryParameter("from"));
+    verify(resumedWebSocket).send("{\"resume\":3}");
+
+    // test method, explicit connect to a server which restarted its sequence
+    client.onClosed(resumedWebSocket, 1000, "");
+    options.put(OPTION_AUTO_RECONNECT, false);
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket restartedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(restartedWebSocket, Mockito.mock(Response.class));
+    client.onMessage(restartedWebSocket, "{\"seq\":1}");
+
+    // verify that stream starts from scratch
+    verify(mockedClient, times(3)).newWebSocket(requestCaptor.capture(), any());
+    assertNull(requestCaptor.getValue().url().queryParameter("from"));
+    verify(restartedWebSocket, never()).send(anyString());
+    verify(textEventSink, times(3)).success(anyString());
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_DUPLICATE_FRAME.getMethodName()), anyMap());
+  }
+
   @Test
   public void receiveTextMessageTest() {
 
@@ -619,6 +1725,47 @@ public class WebSocketClientTest {
     assertArrayEquals(bytes, argumentMessage.getValue());
   }
 
+  @Test
+  public void receiveDirectBinaryMessageTest() {
+
+    // data
+    final byte[] bytes = "Test message 3".getBytes(Charsets.UTF_8);
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_DIRECT_BINARY, true);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // stubbing
+    // buffer is reused after send, so content is copied while sending
+    final AtomicReference<byte[]> sentMessage = new AtomicReference<>();
+    doAnswer(invocation -> {
+      final ByteBuffer buffer = invocation.getArgument(1);
+      assertTrue(buffer.isDirect());
+      final byte[] content = new byte[buffer.position()];
+      buffer.flip();
+      buffer.get(content);
+      sentMessage.set(content);
+      return null;
+    }).when(binaryMessenger).send(anyString(), any(ByteBuffer.class));
+
+    // connect with direct binary enabled
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    client.onMessage(mockedWebSocket, ByteString.of(bytes));
+
+    // verify that frame is sent over direct channel only
+    verify(binaryMessenger).send(Mockito.eq("direct"), any(ByteBuffer.class));
+    verify(byteEventSink, never()).success(any());
+    final ByteBuffer expected = ByteBuffer.allocate(4 + bytes.length);
+    expected.putInt(0);
+    expected.put(bytes);
+    assertArrayEquals(expected.array(), sentMessage.get());
+  }
+
   @Test(expected = RuntimeException.class)
   public void receiveBinaryMessageEventSinkExceptionTest() {
 
@@ -637,6 +1784,301 @@ public class WebSocketClientTest {
     client.onMessage(mockedWebSocket, byteMessage);
   }
 
+  @Test
+  public void receiveBatchedMessagesTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_BATCH_MESSAGES, true);
+    options.put(OPTION_BATCH_MAX_SIZE, 2);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // stubbing
+    // batch window flush is executed manually
+    final AtomicReference<Runnable> windowFlush = new AtomicReference<>();
+    when(handler.postDelayed(any(Runnable.class), anyLong())).then(invocation -> {
+      windowFlush.set(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+
+    // connect with batching enabled
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    final WebSocket mockedWebSocket = Mockito.mock(WebSocket.class);
+    client.onOpen(mockedWebSocket, Mockito.mock(Response.class));
+
+    // test method
+    client.onMessage(mockedWebSocket, "1");
+    client.onMessage(mockedWebSocket, "2");
+    client.onMessage(mockedWebSocket, "3");
+
+    // verify that full batch is delivered immediately
+    verify(textEventSink).success(Arrays.asList("1", "2"));
+
+    // verify that partial batch is delivered when window elapses
+    assertNotNull(windowFlush.get());
+    windowFlush.get().run();
+    verify(textEventSink).success(Collections.singletonList("3"));
+    verify(textEventSink, times(2)).success(any());
+
+    // verify that batch flushed on close cancels its window flush
+    client.onMessage(mockedWebSocket, "4");
+    Mockito.clearInvocations(handler);
+    client.onClosed(mockedWebSocket, 1000, "");
+    verify(textEventSink).success(Collections.singletonList("4"));
+    verify(handler).removeCallbacks(windowFlush.get());
+  }
+
+  @Test
+  public void multipleConnectionsTest() {
+
+    // data
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_CONNECTION_ID, "chat");
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, new HashMap<>());
+    final Result result = Mockito.mock(Result.class);
+
+    // stubbing
+    final AtomicReference<WebSocketListener> chatListener = new AtomicReference<>();
+    when(mockedClient.newWebSocket(any(Request.class), any(WebSocketListener.class)))
+        .then(invocation -> {
+          chatListener.set(invocation.getArgument(1));
+          return null;
+        });
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, result);
+
+    // verify that connection id is returned
+    verify(result).success("chat");
+    assertNotNull(chatListener.get());
+
+    // verify that system events carry connection id
+    final WebSocket chatWebSocket = Mockito.mock(WebSocket.class);
+    when(chatWebSocket.send(anyString())).thenReturn(true);
+    chatListener.get().onOpen(chatWebSocket, Mockito.mock(Response.class));
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Map<String, Object>> contextCaptor = ArgumentCaptor.forClass(Map.class);
+    verify(methodChannel).invokeMethod(anyString(), contextCaptor.capture());
+    assertEquals("chat", contextCaptor.getValue().get(ARGUMENT_CONNECTION_ID));
+
+    // verify that messages carry connection id
+    chatListener.get().onMessage(chatWebSocket, "chat message");
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Map<String, Object>> messageCaptor = ArgumentCaptor.forClass(Map.class);
+    verify(textEventSink).success(messageCaptor.capture());
+    assertEquals("chat", messageCaptor.getValue().get(ARGUMENT_CONNECTION_ID));
+    assertEquals("chat message", messageCaptor.getValue().get(ARGUMENT_MESSAGE));
+
+    // verify that send is routed to chat connection only
+    final Map<String, Object> sendArguments = new HashMap<>();
+    sendArguments.put(ARGUMENT_CONNECTION_ID, "chat");
+    sendArguments.put(ARGUMENT_TEXT_MESSAGE, "hello chat");
+    final Result sendResult = Mockito.mock(Result.class);
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSG, sendArguments, sendResult);
+    verify(chatWebSocket).send("hello chat");
+    verify(sendResult).success(any());
+
+    // verify that send to unknown connection fails
+    sendArguments.put(ARGUMENT_CONNECTION_ID, "unknown");
+    final Result unknownResult = Mockito.mock(Result.class);
+    methodChannel.invokeMethod(IN_METHOD_NAME_SEND_TEXT_MSG, sendArguments, unknownResult);
+    verify(unknownResult).error(anyString(), anyString(), any());
+  }
+
+  @Test
+  public void autoReconnectTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_AUTO_RECONNECT, true);
+    options.put(OPTION_RECONNECT_BASE_DELAY_MS, 100);
+    options.put(OPTION_RECONNECT_MAX_ATTEMPTS, 1);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // stubbing
+    // reconnect attempt is executed manually
+    final AtomicReference<Runnable> reconnectAttempt = new AtomicReference<>();
+    final AtomicReference<Long> reconnectDelay = new AtomicReference<>();
+    when(handler.postDelayed(any(Runnable.class), anyLong())).then(invocation -> {
+      reconnectAttempt.set(invocation.getArgument(0, Runnable.class));
+      reconnectDelay.set(invocation.getArgument(1, Long.class));
+      return true;
+    });
+    when(networkMonitor.isNetworkAvailable()).thenReturn(true);
+
+    // connect with auto reconnect enabled
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+    verify(mockedClient).newWebSocket(any(Request.class), any(WebSocketListener.class));
+
+    // test method
+    client.onFailure(Mockito.mock(WebSocket.class), new RuntimeException("failure"), null);
+
+    // verify that reconnect is scheduled with jittered delay and Flutter is notified
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Map<String, Object>> contextCaptor = ArgumentCaptor.forClass(Map.class);
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_RECONNECTING.getMethodName()), contextCaptor.capture());
+    assertEquals(1, contextCaptor.getValue().get("attempt"));
+    assertNotNull(reconnectAttempt.get());
+    assertTrue(reconnectDelay.get() >= 0 && reconnectDelay.get() <= 100);
+    assertEquals(reconnectDelay.get(), contextCaptor.getValue().get("delayMs"));
+
+    // verify that attempt reconnects
+    reconnectAttempt.get().run();
+    verify(mockedClient, times(2)).newWebSocket(any(Request.class), any(WebSocketListener.class));
+
+    // verify that reconnecting stops after max attempts
+    client.onFailure(Mockito.mock(WebSocket.class), new RuntimeException("failure"), null);
+    verify(methodChannel).invokeMethod(
+        Mockito.eq(SystemEventType.WS_RECONNECT_FAILED.getMethodName()), anyMap());
+    verify(handler, times(1)).postDelayed(any(Runnable.class), anyLong());
+  }
+
+  @Test
+  public void autoReconnectWhileOfflineTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_AUTO_RECONNECT, true);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // stubbing
+    final AtomicReference<Runnable> networkListener = new AtomicReference<>();
+    doAnswer(invocation -> {
+      networkListener.set(invocation.getArgument(0));
+      return null;
+    }).when(networkMonitor).addListener(any(Runnable.class));
+    when(networkMonitor.isNetworkAvailable()).thenReturn(false);
+
+    // connect with auto reconnect enabled
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+
+    // test method
+    client.onFailure(Mockito.mock(WebSocket.class), new RuntimeException("failure"), null);
+
+    // verify that attempt waits for network
+    verify(mockedClient, times(1)).newWebSocket(any(Request.class), any(WebSocketListener.class));
+    assertNotNull(networkListener.get());
+
+    // verify that attempt is executed when network becomes available
+    when(networkMonitor.isNetworkAvailable()).thenReturn(true);
+    networkListener.get().run();
+    verify(networkMonitor).removeListener(networkListener.get());
+    verify(mockedClient, times(2)).newWebSocket(any(Request.class), any(WebSocketListener.class));
+  }
+
+  @Test
+  public void autoReconnectWhenNetworkReturnsBeforeListenerTest() {
+
+    // data
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_AUTO_RECONNECT, true);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, options);
+
+    // stubbing
+    // network is unavailable on first check and available once listener is registered
+    when(networkMonitor.isNetworkAvailable()).thenReturn(false, true);
+
+    // connect with auto reconnect enabled
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+
+    // test method
+    client.onFailure(Mockito.mock(WebSocket.class), new RuntimeException("failure"), null);
+
+    // verify that attempt is executed without network callback
+    verify(networkMonitor).addListener(any(Runnable.class));
+    verify(networkMonitor).removeListener(any(Runnable.class));
+    verify(mockedClient, times(2)).newWebSocket(any(Request.class), any(WebSocketListener.class));
+  }
+
+  @Test
+  public void backgroundDispatchTest() {
+
+    // data
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, "http://fakeUrl");
+    arguments.put(ARGUMENT_OPTIONS, new HashMap<>());
+    final Result result = Mockito.mock(Result.class);
+
+    // stubbing
+    // tasks posted to dispatch and main thread are executed manually
+    final Handler dispatchHandler = Mockito.mock(Handler.class);
+    final List<Runnable> dispatchTasks = new ArrayList<>();
+    when(dispatchHandler.post(any(Runnable.class))).then(invocation -> {
+      dispatchTasks.add(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+    final List<Runnable> mainTasks = new ArrayList<>();
+    when(handler.post(any(Runnable.class))).then(invocation -> {
+      mainTasks.add(invocation.getArgument(0, Runnable.class));
+      return true;
+    });
+    client = new WebSocketClient(mockedClient, handler, dispatchHandler, configurator,
+        networkMonitor, methodChannel, textMessageEventChannel, binaryMessageEventChannel,
+        new DirectBinaryChannel(binaryMessenger, "direct"));
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, result);
+
+    // verify that call is handled on dispatch thread
+    verify(mockedClient, never()).newWebSocket(any(Request.class), any(WebSocketListener.class));
+    assertEquals(1, dispatchTasks.size());
+    dispatchTasks.get(0).run();
+    verify(mockedClient).newWebSocket(any(Request.class), any(WebSocketListener.class));
+
+    // verify that result is sent on main thread
+    verify(result, never()).success(any());
+    assertEquals(1, mainTasks.size());
+    mainTasks.get(0).run();
+    verify(result).success(DEFAULT_CONNECTION_ID);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void openedEventHandshakeTest() throws Exception {
+
+    // prepare object
+    // client opens real connection to mock server
+    final MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+    }));
+    server.start();
+    final WebSocketClient connectingClient = new WebSocketClient(new OkHttpClient(), handler,
+        handler, new ClientConfigurator(), networkMonitor, methodChannel,
+        textMessageEventChannel, binaryMessageEventChannel,
+        new DirectBinaryChannel(binaryMessenger, "direct"));
+
+    // data
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, server.url("/ws").toString());
+    arguments.put(ARGUMENT_OPTIONS, new HashMap<>());
+
+    // test method
+    methodChannel.invokeMethod(IN_METHOD_NAME_CONNECT, arguments, Mockito.mock(Result.class));
+
+    // verify that opened event carries handshake timings and protocol
+    ArgumentCaptor<Map<String, Object>> argumentEvent = ArgumentCaptor.forClass(Map.class);
+    verify(methodChannel, timeout(5000)).invokeMethod(
+        Mockito.eq(SystemEventType.WS_OPENED.getMethodName()), argumentEvent.capture());
+    final Map<String, Object> handshake =
+        (Map<String, Object>) argumentEvent.getValue().get("handshake");
+    assertNotNull(handshake);
+    assertTrue((Double) handshake.get(ARGUMENT_OPEN_MS) >= 0);
+    assertTrue((Double) handshake.get("tcpMs") >= 0);
+    assertEquals("http/1.1", handshake.get("protocol"));
+    connectingClient.terminate();
+    server.shutdown();
+  }
+
   @Test
   public void invokeInvalidMethodNameTest() {
 
@@ -653,6 +2095,14 @@ public class WebSocketClientTest {
     verify(result).notImplemented();
   }
 
+  /**
+   * Waits until tasks submitted to outbox thread so far are done.
+   */
+  private void awaitOutbox() throws Exception {
+    client.getOutboxWriter().submit(() -> {
+    }).get(5, TimeUnit.SECONDS);
+  }
+
   @Test
   public void terminateTest() {
 
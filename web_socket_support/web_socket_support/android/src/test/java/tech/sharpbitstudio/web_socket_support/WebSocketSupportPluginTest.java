@@ -4,6 +4,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.content.Context;
 import io.flutter.embedding.engine.plugins.FlutterPlugin.FlutterPluginBinding;
 import io.flutter.plugin.common.BinaryMessenger;
 import org.junit.Test;
@@ -20,12 +21,13 @@ public class WebSocketSupportPluginTest {
     // prepare mocks
     final FlutterPluginBinding pluginBinding = Mockito.mock(FlutterPluginBinding.class);
     when(pluginBinding.getBinaryMessenger()).thenReturn(Mockito.mock(BinaryMessenger.class));
+    when(pluginBinding.getApplicationContext()).thenReturn(Mockito.mock(Context.class));
 
     // test method
     plugin.onAttachedToEngine(pluginBinding);
 
     // verify
-    verify(pluginBinding, times(3)).getBinaryMessenger();
+    verify(pluginBinding, times(4)).getBinaryMessenger();
   }
 
   @Test
@@ -34,12 +36,13 @@ public class WebSocketSupportPluginTest {
     // prepare mocks
     final FlutterPluginBinding pluginBinding = Mockito.mock(FlutterPluginBinding.class);
     when(pluginBinding.getBinaryMessenger()).thenReturn(Mockito.mock(BinaryMessenger.class));
+    when(pluginBinding.getApplicationContext()).thenReturn(Mockito.mock(Context.class));
 
     // attachToEngine
     plugin.onAttachedToEngine(pluginBinding);
 
     // verify
-    verify(pluginBinding, times(3)).getBinaryMessenger();
+    verify(pluginBinding, times(4)).getBinaryMessenger();
 
     // test method
     plugin.onDetachedFromEngine(pluginBinding);
@@ -0,0 +1,363 @@
+package tech.sharpbitstudio.web_socket_support.benchmark;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_BYTE_MESSAGE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_OPTIONS;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_TEXT_MESSAGE;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.ARGUMENT_URL;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_CONNECT;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_BYTE_MSG;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.IN_METHOD_NAME_SEND_TEXT_MSG;
+import static tech.sharpbitstudio.web_socket_support.domain.Constants.OPTION_SEND_HIGH_WATERMARK;
+
+import android.os.Handler;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
+import io.flutter.plugin.common.EventChannel.EventSink;
+import io.flutter.plugin.common.EventChannel.StreamHandler;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import tech.sharpbitstudio.web_socket_support.ClientConfigurator;
+import tech.sharpbitstudio.web_socket_support.WebSocketClient;
+import tech.sharpbitstudio.web_socket_support.delivery.DirectBinaryChannel;
+import tech.sharpbitstudio.web_socket_support.domain.SystemEventType;
+import tech.sharpbitstudio.web_socket_support.reconnect.NetworkMonitor;
+
+/**
+ * Local throughput and latency benchmark of WebSocketClient receive and send paths. Client talks
+ * to in-process MockWebServer over loopback, handler runs posted tasks inline and event sinks only
+ * record delivery time. Every frame starts with sender's System.nanoTime, so delivery latency is
+ * measured from the moment frame was handed to the sending web socket.
+ * <p>
+ * Skipped by default. Run with:
+ * <pre>
+ *   ./gradlew testDebugUnitTest -Dbenchmark=true --tests '*WebSocketClientBenchmark'
+ * </pre>
+ * Results are printed and written as JSON lines to {@code build/benchmark/results.jsonl}.
+ */
+public class WebSocketClientBenchmark {
+
+  private static final int[] PAYLOAD_SIZES = {16, 1024, 64 * 1024};
+  // total payload per run (warm-up included) is kept below OkHttp's 16 MiB outgoing buffer
+  private static final long BYTES_PER_RUN = 8 * 1024 * 1024;
+  private static final int MAX_FRAMES_PER_RUN = 20000;
+  private static final int MAX_WARM_UP_FRAMES = 1000;
+  private static final long TIMEOUT_SEC = 60;
+
+  private final MockWebServer server = new MockWebServer();
+  private final Handler handler = Mockito.mock(Handler.class);
+  private final MethodChannel methodChannel = Mockito.mock(MethodChannel.class);
+  private final EventChannel textMessageEventChannel = Mockito.mock(EventChannel.class);
+  private final EventChannel binaryMessageEventChannel = Mockito.mock(EventChannel.class);
+
+  private WebSocketClient client;
+  private Recorder clientRecorder;
+  private Recorder serverRecorder;
+  private WebSocket serverWebSocket;
+  private CountDownLatch opened;
+  private Writer results;
+
+  @Before
+  public void before() throws IOException {
+    Assume.assumeTrue("Benchmark is enabled with -Dbenchmark=true",
+        Boolean.getBoolean("benchmark"));
+
+    // handler runs posted tasks inline, delayed tasks (reconnect, drain) are not needed
+    when(handler.post(any(Runnable.class))).then(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return true;
+    });
+    when(handler.postDelayed(any(Runnable.class), anyLong())).thenReturn(true);
+
+    // event sinks record delivery
+    doAnswer(invocation -> {
+      ((StreamHandler) invocation.getArgument(0)).onListen(null, new RecordingSink(true));
+      return null;
+    }).when(textMessageEventChannel).setStreamHandler(any(StreamHandler.class));
+    doAnswer(invocation -> {
+      ((StreamHandler) invocation.getArgument(0)).onListen(null, new RecordingSink(false));
+      return null;
+    }).when(binaryMessageEventChannel).setStreamHandler(any(StreamHandler.class));
+    doAnswer(invocation -> {
+      if (SystemEventType.WS_OPENED.getMethodName().equals(invocation.getArgument(0))) {
+        opened.countDown();
+      }
+      return null;
+    }).when(methodChannel).invokeMethod(anyString(), any());
+
+    client = new WebSocketClient(new OkHttpClient(), handler, handler, new ClientConfigurator(),
+        NetworkMonitor.ALWAYS_AVAILABLE, methodChannel, textMessageEventChannel,
+        binaryMessageEventChannel,
+        new DirectBinaryChannel(Mockito.mock(BinaryMessenger.class), "direct"));
+
+    server.start();
+    final File resultsDir = new File("build/benchmark");
+    assertTrue(resultsDir.isDirectory() || resultsDir.mkdirs());
+    results = new FileWriter(new File(resultsDir, "results.jsonl"), true);
+  }
+
+  @After
+  public void after() throws IOException {
+    if (client != null) {
+      client.terminate();
+    }
+    server.shutdown();
+    if (results != null) {
+      results.close();
+    }
+  }
+
+  @Test
+  public void receiveBenchmark() throws Exception {
+    connect();
+    for (boolean text : new boolean[]{true, false}) {
+      for (int size : PAYLOAD_SIZES) {
+        final int frames = framesPerRun(size);
+        final int warmUpFrames = Math.min(MAX_WARM_UP_FRAMES, frames / 4);
+        clientRecorder = new Recorder(warmUpFrames + frames, warmUpFrames);
+        for (int i = 0; i < warmUpFrames + frames; i++) {
+          if (text) {
+            serverWebSocket.send(textFrame(size));
+          } else {
+            serverWebSocket.send(binaryFrame(size));
+          }
+        }
+        clientRecorder.await();
+        report("receive", text, size, clientRecorder);
+      }
+    }
+  }
+
+  @Test
+  public void sendBenchmark() throws Exception {
+    connect();
+    for (boolean text : new boolean[]{true, false}) {
+      for (int size : PAYLOAD_SIZES) {
+        final int frames = framesPerRun(size);
+        final int warmUpFrames = Math.min(MAX_WARM_UP_FRAMES, frames / 4);
+        serverRecorder = new Recorder(warmUpFrames + frames, warmUpFrames);
+        final Result result = Mockito.mock(Result.class);
+        for (int i = 0; i < warmUpFrames + frames; i++) {
+          final Map<String, Object> arguments = new HashMap<>();
+          if (text) {
+            arguments.put(ARGUMENT_TEXT_MESSAGE, textFrame(size));
+            client.onMethodCall(new MethodCall(IN_METHOD_NAME_SEND_TEXT_MSG, arguments), result);
+          } else {
+            arguments.put(ARGUMENT_BYTE_MESSAGE, binaryFrame(size).toByteArray());
+            client.onMethodCall(new MethodCall(IN_METHOD_NAME_SEND_BYTE_MSG, arguments), result);
+          }
+        }
+        serverRecorder.await();
+        report("send", text, size, serverRecorder);
+      }
+    }
+  }
+
+  /// PRIVATE
+
+  private void connect() throws InterruptedException {
+    opened = new CountDownLatch(1);
+    final CountDownLatch serverOpened = new CountDownLatch(1);
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+      @Override
+      public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
+        serverWebSocket = webSocket;
+        serverOpened.countDown();
+      }
+
+      @Override
+      public void onMessage(@NotNull WebSocket webSocket, @NotNull String text) {
+        serverRecorder.record(parseTimestamp(text), text.length());
+      }
+
+      @Override
+      public void onMessage(@NotNull WebSocket webSocket, @NotNull ByteString bytes) {
+        serverRecorder.record(bytes.asByteBuffer().getLong(), bytes.size());
+      }
+    }));
+
+    final Map<String, Object> options = new HashMap<>();
+    options.put(OPTION_SEND_HIGH_WATERMARK, 15 * 1024 * 1024);
+    final Map<String, Object> arguments = new HashMap<>();
+    arguments.put(ARGUMENT_URL, server.url("/").toString());
+    arguments.put(ARGUMENT_OPTIONS, options);
+    client.onMethodCall(new MethodCall(IN_METHOD_NAME_CONNECT, arguments),
+        Mockito.mock(Result.class));
+    assertTrue(opened.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+    assertTrue(serverOpened.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+  }
+
+  private void report(String path, boolean text, int size, Recorder recorder) throws IOException {
+    final String line = String.format(Locale.ROOT,
+        "{\"path\":\"%s\",\"type\":\"%s\",\"payloadSize\":%d,\"frames\":%d,"
+            + "\"messagesPerSec\":%.1f,\"bytesPerSec\":%.1f,\"latencyP50Us\":%.1f,"
+            + "\"latencyP99Us\":%.1f,\"latencyP999Us\":%.1f,\"allocatedBytesPerFrame\":%.1f}",
+        path, text ? "text" : "binary", size, recorder.measuredFrames(),
+        recorder.messagesPerSec(), recorder.bytesPerSec(), recorder.latencyPercentileUs(50),
+        recorder.latencyPercentileUs(99), recorder.latencyPercentileUs(99.9),
+        recorder.allocatedBytesPerFrame());
+    System.out.println(line);
+    results.write(line);
+    results.write('\n');
+    results.flush();
+  }
+
+  private static int framesPerRun(int size) {
+    return (int) Math.min(MAX_FRAMES_PER_RUN, BYTES_PER_RUN / size);
+  }
+
+  private static String textFrame(int size) {
+    final StringBuilder builder = new StringBuilder(size).append(System.nanoTime()).append(':');
+    while (builder.length() < size) {
+      builder.append('x');
+    }
+    return builder.toString();
+  }
+
+  private static ByteString binaryFrame(int size) {
+    final ByteBuffer buffer = ByteBuffer.allocate(Math.max(size, 8));
+    buffer.putLong(System.nanoTime());
+    return ByteString.of(buffer.array());
+  }
+
+  private static long parseTimestamp(String text) {
+    return Long.parseLong(text.substring(0, text.indexOf(':')));
+  }
+
+  private static long allocatedBytes() {
+    final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /**
+   * Event sink which records latency of frames delivered to Flutter.
+   */
+  private class RecordingSink implements EventSink {
+
+    private final boolean text;
+
+    RecordingSink(boolean text) {
+      this.text = text;
+    }
+
+    @Override
+    public void success(Object event) {
+      if (text) {
+        clientRecorder.record(parseTimestamp((String) event), ((String) event).length());
+      } else {
+        clientRecorder.record(ByteBuffer.wrap((byte[]) event).getLong(), ((byte[]) event).length);
+      }
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+    }
+
+    @Override
+    public void endOfStream() {
+    }
+  }
+
+  /**
+   * Collects per frame latency on a single receiving thread. First {@code warmUpFrames} frames
+   * are not measured.
+   */
+  private static class Recorder {
+
+    private final int warmUpFrames;
+    private final long[] latenciesNs;
+    private final CountDownLatch done;
+    private int received;
+    private long bytes;
+    private long startNs;
+    private long endNs;
+    private long startAllocated;
+    private long endAllocated;
+
+    Recorder(int totalFrames, int warmUpFrames) {
+      this.warmUpFrames = warmUpFrames;
+      this.latenciesNs = new long[totalFrames - warmUpFrames];
+      this.done = new CountDownLatch(1);
+    }
+
+    void record(long sentNs, int size) {
+      final long now = System.nanoTime();
+      if (received == warmUpFrames) {
+        startNs = now;
+        startAllocated = allocatedBytes();
+      }
+      if (received >= warmUpFrames) {
+        latenciesNs[received - warmUpFrames] = now - sentNs;
+        bytes += size;
+      }
+      received++;
+      if (received == warmUpFrames + latenciesNs.length) {
+        endNs = now;
+        endAllocated = allocatedBytes();
+        done.countDown();
+      }
+    }
+
+    void await() throws InterruptedException {
+      assertTrue("Benchmark run timed out.", done.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+      Arrays.sort(latenciesNs);
+    }
+
+    int measuredFrames() {
+      return latenciesNs.length;
+    }
+
+    double messagesPerSec() {
+      return latenciesNs.length / ((endNs - startNs) / 1e9);
+    }
+
+    double bytesPerSec() {
+      return bytes / ((endNs - startNs) / 1e9);
+    }
+
+    double latencyPercentileUs(double percentile) {
+      final int index = (int) Math.ceil(percentile / 100 * latenciesNs.length) - 1;
+      return latenciesNs[Math.max(0, Math.min(index, latenciesNs.length - 1))] / 1e3;
+    }
+
+    double allocatedBytesPerFrame() {
+      return startAllocated < 0
+          ? -1 : (endAllocated - startAllocated) / (double) latenciesNs.length;
+    }
+  }
+}
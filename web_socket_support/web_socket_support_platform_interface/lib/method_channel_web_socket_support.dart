@@ -18,6 +18,7 @@ class MethodChannelWebSocketSupport extends WebSocketSupportPlatform {
       'tech.sharpbitstudio.web_socket_support/text-messages';
   static const byteEventChannelName =
       'tech.sharpbitstudio.web_socket_support/binary-messages';
+  static const defaultConnectionId = 'default';
 
   //
   // locals
@@ -26,42 +27,64 @@ class MethodChannelWebSocketSupport extends WebSocketSupportPlatform {
   final EventChannel _textMessagesChannel;
   final EventChannel _byteMessagesChannel;
 
+  // listeners of connections opened with `connectionId`, default connection
+  // is served by _listener
+  final Map<String, WebSocketListener> _listeners = {};
+
+  // open connections, streams are listened while any connection is open
+  final Set<String> _openConnections = {};
+
   // stream subscriptions
   StreamSubscription? _textStreamSubscription;
   StreamSubscription? _binaryStreamSubscription;
 
+  // large binary messages delivered in chunks, by message id
+  final Map<int, Uint8List> _pendingChunks = {};
+
   MethodChannelWebSocketSupport(this._listener)
       : _methodChannel = MethodChannel(methodChannelName),
         _textMessagesChannel = EventChannel(textEventChannelName),
         _byteMessagesChannel = EventChannel(byteEventChannelName) {
     // set method channel listener
     _methodChannel.setMethodCallHandler((MethodCall call) {
+      // system events carry `connectionId` of connection which sent them
+      final connectionId = _connectionIdOf(call.arguments);
+      final listener = _listenerOf(connectionId);
+      if (listener == null) {
+        print('Event of unknown connection: $connectionId');
+        return Future.value(null);
+      }
       switch (call.method) {
         case 'onOpened':
           // ws established
-          _listener.onWsOpened(DefaultWebSocketConnection(_methodChannel));
+          listener.onWsOpened(DefaultWebSocketConnection(_methodChannel,
+              connectionId == defaultConnectionId ? null : connectionId));
+          _openConnections.add(connectionId);
           _addStreamEventListeners();
           break;
         case 'onClosing':
           var args = call.arguments as Map;
-          _listener.onWsClosing(args['code'], args['reason']);
+          listener.onWsClosing(args['code'], args['reason']);
           break;
         case 'onClosed':
           // ws closed
           var args = call.arguments as Map;
-          _listener.onWsClosed(args['code'], args['reason']);
-          _removeStreamEventListeners();
+          listener.onWsClosed(args['code'], args['reason']);
+          _openConnections.remove(connectionId);
+          if (_openConnections.isEmpty) {
+            _removeStreamEventListeners();
+          }
           break;
         case 'onFailure':
           var args = call.arguments as Map;
-          _listener.onError(WebSocketException(args['throwableType'],
+          listener.onError(WebSocketException(args['throwableType'],
               args['errorMessage'], args['causeMessage']));
           break;
         case 'onStringMessage':
-          _listener.onStringMessage(call.arguments as String);
+          _onTextEvent(call.arguments);
           break;
         case 'onByteArrayMessage':
-          _listener.onByteArrayMessage(call.arguments as Uint8List);
+          _onByteEvent(call.arguments);
           break;
         default:
           print('Unexpected method name: ${call.method}');
@@ -84,53 +107,156 @@ class MethodChannelWebSocketSupport extends WebSocketSupportPlatform {
   Future<void> connect(
     String serverUrl, {
     WebSocketOptions options = const WebSocketOptions(),
+    String? connectionId,
+    WebSocketListener? listener,
   }) {
+    // events of connection are routed to its listener
+    if (connectionId != null && connectionId != defaultConnectionId) {
+      _listeners[connectionId] = listener ?? _listener;
+    }
     // connect to server
     return _methodChannel.invokeMethod<void>(
       'connect',
       <String, Object>{
         'serverUrl': serverUrl,
         'options': options.toMap(),
+        if (connectionId != null) 'connectionId': connectionId,
       },
     );
   }
 
   @override
-  Future<void> disconnect({int code = 1000, String reason = 'Client done.'}) {
+  Future<void> disconnect({
+    int code = 1000,
+    String reason = 'Client done.',
+    String? connectionId,
+  }) {
     return _methodChannel.invokeMethod<void>(
       'disconnect',
       <String, Object>{
         'code': code,
         'reason': reason,
+        if (connectionId != null) 'connectionId': connectionId,
       },
     );
   }
 
   void _addStreamEventListeners() {
+    if (_textStreamSubscription != null) {
+      // already listening for another connection
+      return;
+    }
+
     // add text message listener
-    _textStreamSubscription =
-        _textMessagesChannel.receiveBroadcastStream().listen((message) {
-      _listener.onStringMessage(message as String);
-    }, onError: (e) {
+    _textStreamSubscription = _textMessagesChannel
+        .receiveBroadcastStream()
+        .listen(_onTextEvent, onError: (e) {
       _listener.onError(e);
     });
 
     // add byte messages listener
-    _binaryStreamSubscription =
-        _byteMessagesChannel.receiveBroadcastStream().listen((message) {
-      _listener.onByteArrayMessage(message as Uint8List);
-    }, onError: (e) {
+    _binaryStreamSubscription = _byteMessagesChannel
+        .receiveBroadcastStream()
+        .listen(_onByteEvent, onError: (e) {
       _listener.onError(e);
     });
   }
 
+  /// Messages of default connection are sent as they are, messages of other
+  /// connections are wrapped in map with `connectionId` and `message`.
+  void _onTextEvent(dynamic event) {
+    if (event is Map && event.containsKey('connectionId')) {
+      final listener = _listenerOf(event['connectionId']);
+      if (listener != null) {
+        _deliverText(listener, event['message']);
+      } else {
+        print('Message of unknown connection: ${event['connectionId']}');
+      }
+    } else {
+      _deliverText(_listener, event);
+    }
+  }
+
+  void _onByteEvent(dynamic event) {
+    if (event is Map && event.containsKey('connectionId')) {
+      final listener = _listenerOf(event['connectionId']);
+      if (listener != null) {
+        _deliverBytes(listener, event['message']);
+      } else {
+        print('Message of unknown connection: ${event['connectionId']}');
+      }
+    } else {
+      _deliverBytes(_listener, event);
+    }
+  }
+
+  /// Text payload is a message or, with `batchMessages` option, list of
+  /// messages.
+  void _deliverText(WebSocketListener listener, dynamic payload) {
+    if (payload is String) {
+      listener.onStringMessage(payload);
+    } else if (payload is List) {
+      payload.forEach((message) => _deliverText(listener, message));
+    } else {
+      print('Unexpected text message payload: ${payload.runtimeType}');
+    }
+  }
+
+  /// Byte payload is a message, list of messages (`batchMessages` option) or
+  /// large message delivered as chunk or file (`largeBinaryThreshold`
+  /// option).
+  void _deliverBytes(WebSocketListener listener, dynamic payload) {
+    if (payload is Uint8List) {
+      listener.onByteArrayMessage(payload);
+    } else if (payload is List) {
+      payload.forEach((message) => _deliverBytes(listener, message));
+    } else if (payload is Map && payload['chunk'] is Uint8List) {
+      _onChunk(listener, payload);
+    } else if (payload is Map && payload['path'] is String) {
+      listener.onByteArrayFile(payload['path'], payload['length']);
+    } else {
+      print('Unexpected byte message payload: ${payload.runtimeType}');
+    }
+  }
+
+  /// Chunks of a message arrive in order, message is delivered once its last
+  /// chunk is received.
+  void _onChunk(WebSocketListener listener, Map chunk) {
+    final int messageId = chunk['messageId'];
+    final int offset = chunk['offset'];
+    final Uint8List bytes = chunk['chunk'];
+    final message = _pendingChunks.putIfAbsent(
+        messageId, () => Uint8List(chunk['totalLength']));
+    message.setRange(offset, offset + bytes.length, bytes);
+    if (chunk['last'] == true) {
+      _pendingChunks.remove(messageId);
+      listener.onByteArrayMessage(message);
+    }
+  }
+
+  String _connectionIdOf(dynamic arguments) {
+    final connectionId = arguments is Map ? arguments['connectionId'] : null;
+    return connectionId is String ? connectionId : defaultConnectionId;
+  }
+
+  /// Returns listener of connection, null if connection was not opened with
+  /// [connect].
+  WebSocketListener? _listenerOf(String connectionId) {
+    return connectionId == defaultConnectionId
+        ? _listener
+        : _listeners[connectionId];
+  }
+
   void _removeStreamEventListeners() {
     // remove text message listener
-    _textStreamSubscription!.cancel();
+    _textStreamSubscription?.cancel();
     _textStreamSubscription = null;
 
     // remove byte messages listener
-    _binaryStreamSubscription!.cancel();
+    _binaryStreamSubscription?.cancel();
     _binaryStreamSubscription = null;
+
+    // drop incomplete chunked messages
+    _pendingChunks.clear();
   }
 }
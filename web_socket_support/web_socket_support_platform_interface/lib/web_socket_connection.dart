@@ -15,16 +15,32 @@ abstract class WebSocketConnection {
 class DefaultWebSocketConnection implements WebSocketConnection {
   final MethodChannel _methodChannel;
 
-  DefaultWebSocketConnection(this._methodChannel);
+  /// Id of connection opened with `connectionId`, null for default connection
+  final String? connectionId;
+
+  DefaultWebSocketConnection(this._methodChannel, [this.connectionId]);
 
   @override
   Future<bool?> sendStringMessage(String stringMessage) {
-    return _methodChannel.invokeMethod('sendStringMessage', stringMessage);
+    if (connectionId == null) {
+      return _methodChannel.invokeMethod('sendStringMessage', stringMessage);
+    }
+    // connection is selected by `connectionId` argument of platform method
+    return _methodChannel.invokeMethod('sendTextMessage', <String, Object>{
+      'connectionId': connectionId!,
+      'textMessage': stringMessage,
+    });
   }
 
   @override
   Future<bool?> sendByteArrayMessage(Uint8List byteArrayMessage) {
-    return _methodChannel.invokeMethod(
-        'sendByteArrayMessage', byteArrayMessage);
+    if (connectionId == null) {
+      return _methodChannel.invokeMethod(
+          'sendByteArrayMessage', byteArrayMessage);
+    }
+    return _methodChannel.invokeMethod('sendByteMessage', <String, Object>{
+      'connectionId': connectionId!,
+      'byteMessage': byteArrayMessage,
+    });
   }
 }
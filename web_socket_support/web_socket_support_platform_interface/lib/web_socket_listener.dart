@@ -1,5 +1,6 @@
 import 'dart:typed_data';
 
+import 'package:web_socket_support_platform_interface/web_scoket_exception.dart';
 import 'package:web_socket_support_platform_interface/web_socket_connection.dart';
 
 /// Client code should implement this interface in order to receive async calls from
@@ -27,6 +28,16 @@ abstract class WebSocketListener {
   /// Invoked when a binary (type `0x2`) message has been received.
   void onByteArrayMessage(Uint8List message);
 
+  /// Invoked when a large binary message has been written to file instead of
+  /// being delivered in memory (`largeBinaryMode: 'file'` platform option).
+  /// Listener owns the file and must delete it once read. Reading files is
+  /// platform specific, so default implementation reports the file with
+  /// [onError].
+  void onByteArrayFile(String path, int length) {
+    onError(WebSocketException(
+        'LargeBinaryFile', 'Binary message file was not handled.', path));
+  }
+
   /// Invoked when error occurs in transport between dart and platform.
   void onError(Exception exception);
 }
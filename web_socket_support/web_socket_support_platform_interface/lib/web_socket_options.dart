@@ -2,16 +2,24 @@
 /// All fields must be optional so that we keep backward compatibility
 class WebSocketOptions {
   final bool autoReconnect;
+
+  /// Ping interval in seconds, 0 disables pings.
   final int pingInterval;
   final Map<String, String> headers;
 
+  /// Further platform options (e.g. `compression`, `outboxPath`) passed to
+  /// platform as they are. Keys of typed fields above take precedence.
+  final Map<String, dynamic> platformOptions;
+
   const WebSocketOptions({
     this.autoReconnect = false,
     this.pingInterval = 0,
     this.headers = const {},
+    this.platformOptions = const {},
   });
 
   Map<String, dynamic> toMap() => <String, dynamic>{
+        ...platformOptions,
         'autoReconnect': autoReconnect,
         'pingInterval': pingInterval,
         'headers': headers,
@@ -39,18 +39,26 @@ abstract class WebSocketSupportPlatform extends PlatformInterface {
 
   /// Initialize ws connection to specified server url.
   /// If connection was successful, [onWsOpened] will be invoked.
+  ///
+  /// Further connections are opened with their own [connectionId]; their
+  /// events go to [listener] (listener of default connection if not given)
+  /// and the [WebSocketConnection] passed to it sends over that connection.
   Future<void> connect(
     String serverUrl, {
     WebSocketOptions options = const WebSocketOptions(),
+    String? connectionId,
+    WebSocketListener? listener,
   }) {
     throw UnimplementedError('connect() has not been implemented.');
   }
 
   /// Initialize ws connection close by client.
   /// When connection is successfully closed, [onWsClosed] will be invoked.
+  /// Connection opened with `connectionId` is closed with the same id.
   Future<void> disconnect({
     int code = 1000,
     String reason = 'Client done.',
+    String? connectionId,
   }) {
     throw UnimplementedError('disconnect() has not been implemented.');
   }
@@ -45,6 +45,7 @@ void main() {
       await _webSocketSupport.connect('ws://example.com/',
           options: WebSocketOptions(
             autoReconnect: true,
+            platformOptions: {'compression': false},
           ));
 
       // await completer
@@ -58,6 +59,7 @@ void main() {
           isMethodCall('connect', arguments: <String, Object>{
             'serverUrl': 'ws://example.com/',
             'options': {
+              'compression': false,
               'autoReconnect': true,
               'pingInterval': 0,
               'headers': {},
@@ -262,6 +264,201 @@ void main() {
       await _testWsListener.destroy();
     });
 
+    test('Ignore `onClosed` event of other connection', () async {
+      final _testWsListener = TestWebSocketListener();
+      MethodChannelWebSocketSupport(_testWsListener);
+
+      // Arrange
+      // open ws
+      await _sendMessageFromPlatform(
+          MethodChannelWebSocketSupport.methodChannelName,
+          MethodCall('onOpened', <String, Object>{'connectionId': 'default'}));
+
+      // action
+      // execute methodCall of other connection from platform
+      await _sendMessageFromPlatform(
+          MethodChannelWebSocketSupport.methodChannelName,
+          MethodCall('onClosed', <String, Object>{
+            'connectionId': 'second',
+            'code': 1000,
+            'reason': 'other connection'
+          }));
+
+      // verify
+      expect(_testWsListener.webSocketConnection, isNotNull);
+      expect(_testWsListener.onClosedCalled, false);
+
+      // clean up
+      await _testWsListener.destroy();
+    });
+
+    test('Ignore message of other connection via textEventChannel', () async {
+      final _testWsListener = TestWebSocketListener();
+      MethodChannelWebSocketSupport(_testWsListener);
+
+      // prepare
+      final _streamController = StreamController<Object>.broadcast();
+      EventChannelMock(
+        channelName: MethodChannelWebSocketSupport.textEventChannelName,
+        stream: _streamController.stream,
+      );
+
+      // open ws
+      await _sendMessageFromPlatform(
+          MethodChannelWebSocketSupport.methodChannelName,
+          MethodCall('onOpened'));
+
+      // action
+      // emit message of other connection followed by default one
+      _streamController
+          .add(<String, Object>{'connectionId': 'second', 'message': 'Other'});
+      _streamController.add('Text message 2');
+
+      // verify
+      expect(await _testWsListener.textQueue.next.timeout(Duration(seconds: 1)),
+          'Text message 2');
+
+      // clean up
+      await _testWsListener.destroy();
+    });
+
+    test('Route events and messages of connection to its listener', () async {
+      final _testWsListener = TestWebSocketListener();
+      final _secondWsListener = TestWebSocketListener();
+      final _webSocketSupport = MethodChannelWebSocketSupport(_testWsListener);
+
+      // prepare
+      final _streamController = StreamController<Object>.broadcast();
+      EventChannelMock(
+        channelName: MethodChannelWebSocketSupport.textEventChannelName,
+        stream: _streamController.stream,
+      );
+      final _methodChannel = MethodChannelMock(
+        channelName: MethodChannelWebSocketSupport.methodChannelName,
+        methodMocks: [
+          MethodMock(method: 'connect', result: 'second'),
+          MethodMock(method: 'sendTextMessage', result: true),
+        ],
+      );
+
+      // open second connection
+      await _webSocketSupport.connect('ws://example.com/',
+          connectionId: 'second', listener: _secondWsListener);
+      await _sendMessageFromPlatform(
+          MethodChannelWebSocketSupport.methodChannelName,
+          MethodCall('onOpened', <String, Object>{'connectionId': 'second'}));
+
+      // action
+      // emit message of second connection followed by default one
+      _streamController.add(
+          <String, Object>{'connectionId': 'second', 'message': 'Second'});
+      _streamController.add('Default');
+      await _secondWsListener.webSocketConnection!.sendStringMessage('Hello');
+
+      // verify
+      expect(_testWsListener.webSocketConnection, isNull);
+      expect(
+          await _secondWsListener.textQueue.next.timeout(Duration(seconds: 1)),
+          'Second');
+      expect(await _testWsListener.textQueue.next.timeout(Duration(seconds: 1)),
+          'Default');
+      expect(
+        _methodChannel.log,
+        <Matcher>[
+          isMethodCall('connect', arguments: <String, Object>{
+            'serverUrl': 'ws://example.com/',
+            'options': WebSocketOptions().toMap(),
+            'connectionId': 'second',
+          }),
+          isMethodCall('sendTextMessage', arguments: <String, Object>{
+            'connectionId': 'second',
+            'textMessage': 'Hello',
+          }),
+        ],
+      );
+
+      // clean up
+      await _testWsListener.destroy();
+      await _secondWsListener.destroy();
+    });
+
+    test('Receive batched messages via textEventChannel', () async {
+      final _testWsListener = TestWebSocketListener();
+      MethodChannelWebSocketSupport(_testWsListener);
+
+      // prepare
+      final _streamController = StreamController<Object>.broadcast();
+      EventChannelMock(
+        channelName: MethodChannelWebSocketSupport.textEventChannelName,
+        stream: _streamController.stream,
+      );
+
+      // open ws
+      await _sendMessageFromPlatform(
+          MethodChannelWebSocketSupport.methodChannelName,
+          MethodCall('onOpened'));
+
+      // action
+      // emit batch of messages
+      _streamController.add(<String>['Batched 1', 'Batched 2']);
+
+      // verify
+      expect(await _testWsListener.textQueue.next.timeout(Duration(seconds: 1)),
+          'Batched 1');
+      expect(await _testWsListener.textQueue.next.timeout(Duration(seconds: 1)),
+          'Batched 2');
+
+      // clean up
+      await _testWsListener.destroy();
+    });
+
+    test('Receive chunked and file messages via byteEventChannel', () async {
+      final _testWsListener = TestWebSocketListener();
+      MethodChannelWebSocketSupport(_testWsListener);
+
+      // prepare
+      final _streamController = StreamController<Object>.broadcast();
+      EventChannelMock(
+        channelName: MethodChannelWebSocketSupport.byteEventChannelName,
+        stream: _streamController.stream,
+      );
+
+      // open ws
+      await _sendMessageFromPlatform(
+          MethodChannelWebSocketSupport.methodChannelName,
+          MethodCall('onOpened'));
+
+      // action
+      // emit message in two chunks followed by message written to file
+      _streamController.add(<String, Object>{
+        'messageId': 1,
+        'offset': 0,
+        'totalLength': 4,
+        'last': false,
+        'chunk': Uint8List.fromList([1, 2]),
+      });
+      _streamController.add(<String, Object>{
+        'messageId': 1,
+        'offset': 2,
+        'totalLength': 4,
+        'last': true,
+        'chunk': Uint8List.fromList([3, 4]),
+      });
+      _streamController
+          .add(<String, Object>{'path': '/tmp/ws_message_1.bin', 'length': 8});
+
+      // verify
+      expect(await _testWsListener.byteQueue.next.timeout(Duration(seconds: 1)),
+          [1, 2, 3, 4]);
+      await _testWsListener.errorCompleter.future
+          .timeout(Duration(seconds: 1));
+      expect(_testWsListener.exception.toString(),
+          contains('/tmp/ws_message_1.bin'));
+
+      // clean up
+      await _testWsListener.destroy();
+    });
+
     test('Receive `onFailure` event from platform', () async {
       final _testWsListener = TestWebSocketListener();
       MethodChannelWebSocketSupport(_testWsListener);